@@ -0,0 +1,83 @@
+package com.benefitj.consistenthash;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试使用的节点
+ */
+public class BenchmarkNode implements Node {
+
+  private final String key;
+  private final String address;
+
+  public BenchmarkNode(String key, String address) {
+    this.key = key;
+    this.address = address;
+  }
+
+  @Override
+  public String getNodeAddress() {
+    return address;
+  }
+
+  @Override
+  public String getKey() {
+    return key;
+  }
+
+  @Override
+  public String toString() {
+    return key;
+  }
+
+  /**
+   * 创建节点
+   *
+   * @param count 数量
+   * @return 返回节点
+   */
+  public static List<BenchmarkNode> nodes(int count) {
+    final List<BenchmarkNode> nodes = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      nodes.add(new BenchmarkNode("IDC1-10.0." + (i / 256) + "." + (i % 256) + ":8080",
+          "10.0." + (i / 256) + "." + (i % 256) + ":8080"));
+    }
+    return nodes;
+  }
+
+  /**
+   * 根据名称创建哈希函数
+   *
+   * @param name murmur3、xxhash64、fnv1a、md5
+   * @return 返回哈希函数
+   */
+  public static HashFunction hashFunction(String name) {
+    switch (name) {
+      case "murmur3":
+        return new Murmur3Hash();
+      case "xxhash64":
+        return new XxHash64();
+      case "fnv1a":
+        return new Fnv1aHash();
+      case "md5":
+        return new MessageDigestHash("MD5");
+      default:
+        throw new IllegalArgumentException("unknown hash function: " + name);
+    }
+  }
+
+  /**
+   * 生成 key
+   *
+   * @param count 数量
+   * @return 返回 key
+   */
+  public static String[] keys(int count) {
+    final String[] keys = new String[count];
+    for (int i = 0; i < count; i++) {
+      keys[i] = "device-" + Long.toHexString(i * 0x9E3779B97F4A7C15L);
+    }
+    return keys;
+  }
+}
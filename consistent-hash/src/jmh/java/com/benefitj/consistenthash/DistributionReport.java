@@ -0,0 +1,51 @@
+package com.benefitj.consistenthash;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * 输出不同哈希函数和虚拟节点数量下的路由分布(JSON)
+ * <p>
+ * 参数: [输出文件] [key 的数量] [物理节点数量]
+ */
+public class DistributionReport {
+
+  private static final String[] HASH_FUNCTIONS = {"murmur3", "xxhash64", "fnv1a", "md5"};
+  private static final int[] VIRTUAL_NODE_COUNTS = {10, 100, 500, 1000};
+
+  public static void main(String[] args) throws IOException {
+    final File output = new File(args.length > 0 ? args[0] : "build/reports/jmh/distribution.json");
+    final int keyCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+    final int nodeCount = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+
+    final StringBuilder sb = new StringBuilder("[");
+    for (String name : HASH_FUNCTIONS) {
+      for (int vNodeCount : VIRTUAL_NODE_COUNTS) {
+        final ConsistentHashRouter<BenchmarkNode> router =
+            new ConsistentHashRouter<>(Integer.MAX_VALUE, BenchmarkNode.hashFunction(name));
+        router.addNodes(BenchmarkNode.nodes(nodeCount), vNodeCount);
+        final RouteDistribution distribution = RouteDistribution.analyze(router, keyCount);
+        if (sb.length() > 1) {
+          sb.append(",\n");
+        }
+        sb.append("{\"hashFunction\":\"").append(name)
+            .append("\",\"vNodeCount\":").append(vNodeCount)
+            .append(",\"distribution\":").append(distribution.toJson())
+            .append('}');
+        System.out.printf("%-9s vNodes=%-5d stddev=%.1f max/mean=%.3f%n", name, vNodeCount,
+            distribution.getStandardDeviation(), distribution.getMaxMeanRatio());
+      }
+    }
+    sb.append("]\n");
+
+    final File dir = output.getAbsoluteFile().getParentFile();
+    if (dir != null && !dir.exists() && !dir.mkdirs()) {
+      throw new IOException("cannot create directory: " + dir);
+    }
+    Files.write(output.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+    System.out.println("write to " + output.getAbsolutePath());
+  }
+
+}
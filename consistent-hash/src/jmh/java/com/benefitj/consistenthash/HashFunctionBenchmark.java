@@ -0,0 +1,57 @@
+package com.benefitj.consistenthash;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各个 HashFunction 的耗时
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashFunctionBenchmark {
+
+  @Param({"murmur3", "xxhash64", "fnv1a", "md5"})
+  public String hashFunction;
+
+  @Param({"16", "64"})
+  public int keyLength;
+
+  private HashFunction function;
+  private String key;
+  private byte[] bytes;
+  private long longKey;
+
+  @Setup
+  public void setup() {
+    function = BenchmarkNode.hashFunction(hashFunction);
+    final StringBuilder sb = new StringBuilder(keyLength);
+    for (int i = 0; i < keyLength; i++) {
+      sb.append((char) ('a' + (i % 26)));
+    }
+    key = sb.toString();
+    bytes = key.getBytes(StandardCharsets.UTF_8);
+    longKey = 0x123456789ABCDEFL;
+  }
+
+  @Benchmark
+  public long hashString() {
+    return function.hash(key);
+  }
+
+  @Benchmark
+  public long hashBytes() {
+    return function.hash(bytes, 0, bytes.length);
+  }
+
+  @Benchmark
+  public long hashLong() {
+    return function.hash(longKey);
+  }
+
+}
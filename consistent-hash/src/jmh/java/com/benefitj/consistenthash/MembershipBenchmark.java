@@ -0,0 +1,46 @@
+package com.benefitj.consistenthash;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConsistentHashRouter 添加和移除节点的耗时(一次添加加一次移除)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MembershipBenchmark {
+
+  @Param({"32", "200"})
+  public int nodeCount;
+
+  @Param({"100", "1000"})
+  public int vNodeCount;
+
+  private ConsistentHashRouter<BenchmarkNode> router;
+  private BenchmarkNode node;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    final List<BenchmarkNode> nodes = BenchmarkNode.nodes(nodeCount + 1);
+    node = nodes.remove(nodeCount);
+    router = new ConsistentHashRouter<>();
+    router.addNodes(nodes, vNodeCount);
+  }
+
+  /**
+   * 添加一个节点后再移除，每次调用结束时哈希环恢复原样，不需要在每次调用前重新创建
+   */
+  @Benchmark
+  public ConsistentHashRouter<BenchmarkNode> addAndRemoveNode() {
+    router.addNode(node, vNodeCount);
+    router.removeNode(node);
+    return router;
+  }
+
+}
@@ -0,0 +1,67 @@
+package com.benefitj.consistenthash;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConsistentHashRouter.routeNode 的吞吐量，分别使用 1/8/32 个线程
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouteNodeBenchmark {
+
+  private static final int KEY_COUNT = 1 << 16;
+
+  @Param({"murmur3", "xxhash64", "fnv1a", "md5"})
+  public String hashFunction;
+
+  @Param({"32"})
+  public int nodeCount;
+
+  @Param({"100", "1000"})
+  public int vNodeCount;
+
+  private ConsistentHashRouter<BenchmarkNode> router;
+  private String[] keys;
+
+  @Setup
+  public void setup() {
+    router = new ConsistentHashRouter<>(Integer.MAX_VALUE, BenchmarkNode.hashFunction(hashFunction));
+    router.addNodes(BenchmarkNode.nodes(nodeCount), vNodeCount);
+    keys = BenchmarkNode.keys(KEY_COUNT);
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int index;
+
+    int next() {
+      return (index++) & (KEY_COUNT - 1);
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void routeNode1(Cursor cursor, Blackhole bh) {
+    bh.consume(router.routeNode(keys[cursor.next()]));
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void routeNode8(Cursor cursor, Blackhole bh) {
+    bh.consume(router.routeNode(keys[cursor.next()]));
+  }
+
+  @Benchmark
+  @Threads(32)
+  public void routeNode32(Cursor cursor, Blackhole bh) {
+    bh.consume(router.routeNode(keys[cursor.next()]));
+  }
+
+}
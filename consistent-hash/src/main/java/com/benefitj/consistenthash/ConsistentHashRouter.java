@@ -18,7 +18,12 @@ package com.benefitj.consistenthash;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * To hash Node objects to a hash ring with a certain amount of virtual node.
@@ -26,16 +31,36 @@ import java.util.*;
  *
  * @param <T>
  */
-public class ConsistentHashRouter<T extends Node> {
+public class ConsistentHashRouter<T extends Node> implements NodeRouter<T> {
 
   private final SortedMap<Long, VirtualNode<T>> ring = new TreeMap<>();
+  /**
+   * 物理节点的虚拟节点索引: 物理节点的key -> 虚拟节点的哈希值(按副本索引的顺序)
+   */
+  private final Map<String, List<Long>> vNodeIndex = new HashMap<>();
   private final HashFunction hashFunction;
 
   private final ReadWriteLockDelegate lock = new ReadWriteLockDelegate(false);
+  /**
+   * 哈希环快照，每次修改哈希环后重新发布，路由时直接读取
+   */
+  private volatile RingSnapshot<T> snapshot = RingSnapshot.empty();
   /**
    * 最大虚拟节点数
    */
   private volatile int maxVirtualNodeCount;
+  /**
+   * 物理节点的负载: 物理节点的key -> 当前负载
+   */
+  private final Map<String, NodeLoad<T>> loads = new ConcurrentHashMap<>();
+  /**
+   * 全部物理节点的负载之和
+   */
+  private final AtomicLong totalLoad = new AtomicLong();
+  /**
+   * 有界负载的系数 ε，每个物理节点的容量为 (1 + ε) * 平均负载
+   */
+  private volatile double boundedLoadFactor = 0.25;
 
   public ConsistentHashRouter() {
     this(Integer.MAX_VALUE);
@@ -45,25 +70,61 @@ public class ConsistentHashRouter<T extends Node> {
     this(maxVirtualNodeCount, null);
   }
 
+  /**
+   * @param maxVirtualNodeCount 最大虚拟节点数
+   * @param hashFunction        哈希函数，为 null 时默认使用 {@link Murmur3Hash}
+   */
   public ConsistentHashRouter(int maxVirtualNodeCount, HashFunction hashFunction) {
     this.maxVirtualNodeCount = Math.min(maxVirtualNodeCount, Integer.MAX_VALUE);
-    this.hashFunction = hashFunction != null ? hashFunction : new MessageDigestHash("MD5");
+    this.hashFunction = hashFunction != null ? hashFunction : new Murmur3Hash();
   }
 
   public int getMaxVirtualNodeCount() {
     return maxVirtualNodeCount;
   }
 
+  @Override
   public HashFunction getHashFunction() {
     return hashFunction;
   }
 
   public int size() {
-    return lock.readLock(ring::size);
+    return snapshot.size();
   }
 
+  @Override
   public boolean isEmpty() {
-    return lock.readLock(ring::isEmpty);
+    return snapshot.isEmpty();
+  }
+
+  /**
+   * @return 物理节点数量
+   */
+  public int getNodeCount() {
+    return snapshot.nodeCount();
+  }
+
+  /**
+   * @return 当前的哈希环快照
+   */
+  RingSnapshot<T> getSnapshot() {
+    return snapshot;
+  }
+
+  public double getBoundedLoadFactor() {
+    return boundedLoadFactor;
+  }
+
+  /**
+   * 设置有界负载的系数
+   *
+   * @param boundedLoadFactor 系数 ε，必须大于0
+   */
+  public void setBoundedLoadFactor(double boundedLoadFactor) {
+    if (!(boundedLoadFactor > 0)) {
+      throw new IllegalArgumentException("illegal bounded load factor :" + boundedLoadFactor);
+    }
+    this.boundedLoadFactor = boundedLoadFactor;
   }
 
   /**
@@ -111,19 +172,56 @@ public class ConsistentHashRouter<T extends Node> {
     if (pNodes != null && !pNodes.isEmpty()) {
       lock.writeLock(() -> {
         for (T pNode : pNodes) {
-          int replicas = getUnsafeReplicas(pNode);
-          if (maxVirtualNodeCount > replicas) {
-            for (int i = 0; i < vNodeCount; i++) {
-              VirtualNode<T> vNode = new VirtualNode<>(pNode, i + replicas);
-              Long vHash = getHashFunction().hash(vNode.getKey());
-              ring.put(vHash, vNode);
-            }
+          addUnsafe(pNode, vNodeCount, maxVirtualNodeCount);
+        }
+        publishSnapshot();
+      });
+    }
+  }
+
+  /**
+   * 按权重添加物理节点，每个物理节点的虚拟节点数量为 weight * vNodesPerWeight，且不超过最大虚拟节点数，
+   * 已存在的物理节点只添加或移除相差的虚拟节点
+   *
+   * @param pNodes          physical node needs added to hash ring
+   * @param vNodesPerWeight 每个权重单位的虚拟节点数量
+   * @see Node#getWeight()
+   */
+  public void addWeightedNodes(final Collection<T> pNodes, final int vNodesPerWeight) {
+    if (vNodesPerWeight < 0) {
+      throw new IllegalArgumentException("illegal virtual node counts :" + vNodesPerWeight);
+    }
+    if (pNodes != null && !pNodes.isEmpty()) {
+      final int maxVirtualNodeCount = getMaxVirtualNodeCount();
+      lock.writeLock(() -> {
+        for (T pNode : pNodes) {
+          if (pNode.getWeight() < 0) {
+            throw new IllegalArgumentException("illegal node weight :" + pNode.getWeight());
           }
+          long vNodeCount = (long) pNode.getWeight() * vNodesPerWeight;
+          resizeUnsafe(pNode, (int) Math.min(vNodeCount, maxVirtualNodeCount));
         }
+        publishSnapshot();
       });
     }
   }
 
+  /**
+   * 调整物理节点的虚拟节点数量，只添加或移除相差的虚拟节点，数量为0时移除物理节点
+   *
+   * @param pNode      physical node
+   * @param vNodeCount the number of virtual node of the physical node. Value should be greater than or equals to 0
+   */
+  public void reweightNode(@Nonnull T pNode, int vNodeCount) {
+    if (vNodeCount < 0) {
+      throw new IllegalArgumentException("illegal virtual node counts :" + vNodeCount);
+    }
+    lock.writeLock(() -> {
+      resizeUnsafe(pNode, vNodeCount);
+      publishSnapshot();
+    });
+  }
+
   /**
    * remove the physical node from the hash ring
    *
@@ -141,15 +239,9 @@ public class ConsistentHashRouter<T extends Node> {
   public void removeNodes(@Nonnull Collection<T> pNodes) {
     lock.writeLock(() -> {
       for (T pNode : pNodes) {
-        final Iterator<Long> it = ring.keySet().iterator();
-        while (it.hasNext()) {
-          Long key = it.next();
-          VirtualNode<T> virtualNode = ring.get(key);
-          if (virtualNode.isVirtualNodeOf(pNode)) {
-            it.remove();
-          }
-        }
+        removeUnsafe(pNode);
       }
+      publishSnapshot();
     });
   }
 
@@ -160,15 +252,272 @@ public class ConsistentHashRouter<T extends Node> {
    * @return
    */
   @Nullable
+  @Override
   public T routeNode(String objectKey) {
-    return lock.readLock(() -> {
-      if (ring.isEmpty()) {
-        return null;
+    final RingSnapshot<T> s = this.snapshot;
+    return !s.isEmpty() ? s.route(hashFunction.hash(objectKey)) : null;
+  }
+
+  /**
+   * with a specified key, route the nearest Node instance in the current hash ring
+   *
+   * @param objectKey the object key to find a nearest Node
+   * @return 返回节点，没有节点时返回 null
+   */
+  @Nullable
+  public T routeNode(byte[] objectKey) {
+    return routeNode(objectKey, 0, objectKey.length);
+  }
+
+  /**
+   * with a specified key, route the nearest Node instance in the current hash ring
+   *
+   * @param objectKey the object key to find a nearest Node
+   * @param off       起始位置
+   * @param len       长度
+   * @return 返回节点，没有节点时返回 null
+   */
+  @Nullable
+  public T routeNode(byte[] objectKey, int off, int len) {
+    final RingSnapshot<T> s = this.snapshot;
+    return !s.isEmpty() ? s.route(hashFunction.hash(objectKey, off, len)) : null;
+  }
+
+  /**
+   * with a specified key, route the nearest Node instance in the current hash ring
+   *
+   * @param objectKey the object key to find a nearest Node
+   * @return 返回节点，没有节点时返回 null
+   */
+  @Nullable
+  public T routeNode(long objectKey) {
+    final RingSnapshot<T> s = this.snapshot;
+    return !s.isEmpty() ? s.route(hashFunction.hash(objectKey)) : null;
+  }
+
+  /**
+   * with a specified key, route n distinct physical nodes clockwise from the key's position,
+   * the first one is the same as {@link #routeNode(String)}
+   *
+   * @param objectKey the object key to find the nearest Nodes
+   * @param n         节点数量
+   * @return 返回不重复的物理节点，物理节点不足 n 个时返回全部物理节点
+   */
+  public List<T> routeNodes(String objectKey, int n) {
+    if (n < 0) {
+      throw new IllegalArgumentException("illegal node counts :" + n);
+    }
+    final RingSnapshot<T> s = this.snapshot;
+    if (s.isEmpty() || n == 0) {
+      return Collections.emptyList();
+    }
+    final Node[] dest = new Node[Math.min(n, s.nodeCount())];
+    final int count = s.route(hashFunction.hash(objectKey), dest, dest.length);
+    @SuppressWarnings("unchecked")
+    List<T> list = (List<T>) Arrays.asList(dest);
+    return count == dest.length ? list : list.subList(0, count);
+  }
+
+  /**
+   * with a specified key, route distinct physical nodes clockwise from the key's position (不分配对象)
+   *
+   * @param objectKey the object key to find the nearest Nodes
+   * @param dest      存放结果的数组，数组的长度即需要的节点数量
+   * @return 返回找到的节点数量
+   */
+  public int routeNodes(String objectKey, T[] dest) {
+    final RingSnapshot<T> s = this.snapshot;
+    return !s.isEmpty() ? s.route(hashFunction.hash(objectKey), dest, dest.length) : 0;
+  }
+
+  /**
+   * 有界负载的路由(consistent hashing with bounded loads)：从 key 的位置顺时针查找，
+   * 跳过负载已达到 (1 + ε) * 平均负载 的物理节点，选中后节点的负载加1，
+   * 处理完成后需要调用 {@link NodeLoad#release()} 释放，节点在此期间被移除或重新加入也不影响释放
+   *
+   * @param objectKey the object key to find a nearest Node
+   * @return 返回选中节点的负载，没有节点时返回 null
+   */
+  @Nullable
+  public NodeLoad<T> acquireNode(String objectKey) {
+    final RingSnapshot<T> s = this.snapshot;
+    if (s.isEmpty()) {
+      return null;
+    }
+    final int capacity = (int) Math.ceil((1 + boundedLoadFactor) * (totalLoad.get() + 1) / s.nodeCount());
+    final int start = s.indexOf(hashFunction.hash(objectKey));
+    for (int i = 0, size = s.size(); i < size; i++) {
+      final int index = (start + i) % size;
+      final NodeLoad<T> load = s.loadAt(index);
+      if (load.tryAcquire(capacity)) {
+        return load;
       }
-      Long hashVal = hashFunction.hash(objectKey);
-      SortedMap<Long, VirtualNode<T>> tailMap = ring.tailMap(hashVal);
-      Long nodeHashVal = !tailMap.isEmpty() ? tailMap.firstKey() : ring.firstKey();
-      return ring.get(nodeHashVal).getPhysicalNode();
+    }
+    // 并发时可能全部超出容量，直接使用第一个节点
+    final NodeLoad<T> load = s.loadAt(start);
+    load.acquire();
+    return load;
+  }
+
+  /**
+   * 释放 {@link #acquireNode(String)} 获取的节点，节点的负载减1
+   *
+   * @param load 获取节点时返回的负载
+   */
+  public void releaseNode(NodeLoad<T> load) {
+    load.release();
+  }
+
+  /**
+   * 获取节点的当前负载
+   *
+   * @param pNode 节点
+   * @return 返回负载
+   */
+  public int getLoad(T pNode) {
+    final NodeLoad<T> load = loads.get(pNode.getKey());
+    return load != null ? load.get() : 0;
+  }
+
+  /**
+   * 获取全部节点的负载之和，包括已被移除、但还未释放的负载
+   *
+   * @return 返回总负载
+   */
+  public long getTotalLoad() {
+    return totalLoad.get();
+  }
+
+  /**
+   * 计算添加节点时需要迁移的哈希区间，不会修改当前的哈希环
+   *
+   * @param pNodes     physical node needs added to hash ring
+   * @param vNodeCount the number of virtual node of the physical node. Value should be greater than or equals to 0
+   * @return 返回迁移的区间
+   */
+  public List<MigrationRange<T>> planAddNodes(Collection<T> pNodes, int vNodeCount) {
+    return planAddNodes(pNodes, vNodeCount, getMaxVirtualNodeCount());
+  }
+
+  /**
+   * 计算添加节点时需要迁移的哈希区间，不会修改当前的哈希环
+   *
+   * @param pNodes              physical node needs added to hash ring
+   * @param vNodeCount          the number of virtual node of the physical node. Value should be greater than or equals to 0
+   * @param maxVirtualNodeCount 最大虚拟节点数量
+   * @return 返回迁移的区间
+   */
+  public List<MigrationRange<T>> planAddNodes(Collection<T> pNodes, int vNodeCount, int maxVirtualNodeCount) {
+    return plan(proposed -> proposed.addNodes(pNodes, vNodeCount, maxVirtualNodeCount));
+  }
+
+  /**
+   * 计算移除节点时需要迁移的哈希区间，不会修改当前的哈希环
+   *
+   * @param pNodes physical node needs removed from hash ring
+   * @return 返回迁移的区间
+   */
+  public List<MigrationRange<T>> planRemoveNodes(Collection<T> pNodes) {
+    return plan(proposed -> proposed.removeNodes(pNodes));
+  }
+
+  /**
+   * 复制当前的哈希环并在副本上执行修改，比较修改前后的快照
+   *
+   * @param change 修改
+   * @return 返回迁移的区间
+   */
+  private List<MigrationRange<T>> plan(Consumer<ConsistentHashRouter<T>> change) {
+    final ConsistentHashRouter<T> proposed = new ConsistentHashRouter<>(getMaxVirtualNodeCount(), getHashFunction());
+    final RingSnapshot<T> origin = lock.readLock(() -> {
+      proposed.ring.putAll(ring);
+      vNodeIndex.forEach((key, vHashes) -> proposed.vNodeIndex.put(key, new ArrayList<>(vHashes)));
+      return snapshot;
+    });
+    change.accept(proposed);
+    return origin.diff(proposed.snapshot);
+  }
+
+  /**
+   * 把哈希环保存到文件，用于启动时通过 {@link #loadRing(File, Collection)} 快速恢复，不需要重新计算哈希值
+   *
+   * @param file 文件
+   */
+  public void saveRing(File file) {
+    lock.readLock(() -> {
+      try {
+        RingFile.write(file, getHashFunction(), ring, vNodeIndex.keySet());
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+  }
+
+  /**
+   * 从文件中恢复哈希环，替换当前全部的节点；文件中的哈希函数与当前不一致时抛出 IllegalStateException
+   *
+   * @param file   文件
+   * @param pNodes 物理节点，文件中没有对应物理节点的虚拟节点会被忽略
+   */
+  public void loadRing(File file, Collection<T> pNodes) {
+    final RingFile rf;
+    try {
+      rf = RingFile.read(file, getHashFunction());
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    final Map<String, T> nodes = new HashMap<>();
+    for (T pNode : pNodes) {
+      nodes.put(pNode.getKey(), pNode);
+    }
+    @SuppressWarnings("unchecked")
+    final T[] nodeOfOrdinal = (T[]) new Node[rf.keys.length];
+    final int[] counts = new int[rf.keys.length];
+    for (int i = 0; i < rf.keys.length; i++) {
+      nodeOfOrdinal[i] = nodes.get(rf.keys[i]);
+    }
+    for (int ordinal : rf.ordinals) {
+      counts[ordinal]++;
+    }
+    // 按副本索引排序每个物理节点的虚拟节点: (副本索引 << 32) | 在文件中的位置
+    final long[][] replicaOrders = new long[rf.keys.length][];
+    for (int i = 0; i < counts.length; i++) {
+      replicaOrders[i] = nodeOfOrdinal[i] != null ? new long[counts[i]] : null;
+      counts[i] = 0;
+    }
+    for (int i = 0; i < rf.hashes.length; i++) {
+      final int ordinal = rf.ordinals[i];
+      if (replicaOrders[ordinal] != null) {
+        replicaOrders[ordinal][counts[ordinal]++] = ((long) rf.replicas[i] << 32) | i;
+      }
+    }
+    lock.writeLock(() -> {
+      ring.clear();
+      vNodeIndex.clear();
+      // 已获取的负载通过 NodeLoad 释放，不重置总负载
+      loads.clear();
+      // 哈希值已经有序，按顺序插入
+      final Long[] vHashes = new Long[rf.hashes.length];
+      for (int i = 0; i < rf.hashes.length; i++) {
+        final T pNode = nodeOfOrdinal[rf.ordinals[i]];
+        if (pNode != null) {
+          vHashes[i] = rf.hashes[i];
+          ring.put(vHashes[i], new VirtualNode<>(pNode, rf.replicas[i]));
+        }
+      }
+      for (int i = 0; i < replicaOrders.length; i++) {
+        final long[] order = replicaOrders[i];
+        if (order != null && order.length > 0) {
+          Arrays.sort(order);
+          final List<Long> index = new ArrayList<>(order.length);
+          for (long o : order) {
+            index.add(vHashes[(int) o]);
+          }
+          vNodeIndex.put(rf.keys[i], index);
+          loads.put(rf.keys[i], new NodeLoad<>(nodeOfOrdinal[i], totalLoad));
+        }
+      }
+      publishSnapshot();
     });
   }
 
@@ -189,19 +538,102 @@ public class ConsistentHashRouter<T extends Node> {
    * @return 返回节点副本数量
    */
   private int getUnsafeReplicas(T pNode) {
-    int replicas = 0;
-    for (VirtualNode<T> vNode : ring.values()) {
-      if (vNode.isVirtualNodeOf(pNode)) {
-        replicas++;
+    final List<Long> vHashes = vNodeIndex.get(pNode.getKey());
+    return vHashes != null ? vHashes.size() : 0;
+  }
+
+  /**
+   * 添加物理节点的虚拟节点（不加锁）
+   *
+   * @param pNode               物理节点
+   * @param vNodeCount          添加的虚拟节点数量
+   * @param maxVirtualNodeCount 最大虚拟节点数量
+   */
+  private void addUnsafe(T pNode, int vNodeCount, int maxVirtualNodeCount) {
+    final List<Long> vHashes = vNodeIndex.computeIfAbsent(pNode.getKey(), k -> new ArrayList<>(vNodeCount));
+    final int replicas = vHashes.size();
+    if (maxVirtualNodeCount > replicas) {
+      for (int i = 0; i < vNodeCount; i++) {
+        VirtualNode<T> vNode = new VirtualNode<>(pNode, i + replicas);
+        Long vHash = getHashFunction().hash(vNode.getKey());
+        VirtualNode<T> old = ring.put(vHash, vNode);
+        if (old != null) {
+          if (old.isVirtualNodeOf(pNode)) {
+            continue;
+          }
+          // 哈希冲突，被覆盖的虚拟节点不再属于原来的物理节点
+          final List<Long> oldHashes = vNodeIndex.get(old.getPhysicalNode().getKey());
+          if (oldHashes != null) {
+            oldHashes.remove(vHash);
+            if (oldHashes.isEmpty()) {
+              removeUnsafe(old.getPhysicalNode());
+            }
+          }
+        }
+        vHashes.add(vHash);
+      }
+    }
+    if (vHashes.isEmpty()) {
+      vNodeIndex.remove(pNode.getKey());
+    } else {
+      loads.computeIfAbsent(pNode.getKey(), k -> new NodeLoad<>(pNode, totalLoad));
+    }
+  }
+
+  /**
+   * 调整物理节点的虚拟节点数量（不加锁），移除时从副本索引最大的虚拟节点开始
+   *
+   * @param pNode      物理节点
+   * @param vNodeCount 调整后的虚拟节点数量
+   */
+  private void resizeUnsafe(T pNode, int vNodeCount) {
+    final int replicas = getUnsafeReplicas(pNode);
+    if (vNodeCount > replicas) {
+      addUnsafe(pNode, vNodeCount - replicas, Integer.MAX_VALUE);
+    } else if (vNodeCount == 0) {
+      removeUnsafe(pNode);
+    } else if (vNodeCount < replicas) {
+      final List<Long> vHashes = vNodeIndex.get(pNode.getKey());
+      for (int i = replicas - 1; i >= vNodeCount; i--) {
+        ring.remove(vHashes.remove(i));
+      }
+    }
+  }
+
+  /**
+   * 移除物理节点的全部虚拟节点（不加锁）
+   *
+   * @param pNode 物理节点
+   */
+  private void removeUnsafe(T pNode) {
+    final List<Long> vHashes = vNodeIndex.remove(pNode.getKey());
+    if (vHashes != null) {
+      for (Long vHash : vHashes) {
+        ring.remove(vHash);
       }
     }
-    return replicas;
+    // 已获取的负载仍计入总负载，通过 NodeLoad 释放时再减去
+    loads.remove(pNode.getKey());
   }
 
   /**
    * 清空结点
    */
+  @Override
   public void clear() {
-    lock.writeLock(ring::clear);
+    lock.writeLock(() -> {
+      ring.clear();
+      vNodeIndex.clear();
+      // 已获取的负载通过 NodeLoad 释放，不重置总负载
+      loads.clear();
+      publishSnapshot();
+    });
+  }
+
+  /**
+   * 根据当前的哈希环重新发布快照（需在写锁内调用）
+   */
+  private void publishSnapshot() {
+    this.snapshot = RingSnapshot.of(ring, vNodeIndex.size(), loads);
   }
 }
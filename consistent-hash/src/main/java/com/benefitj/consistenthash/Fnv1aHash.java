@@ -0,0 +1,49 @@
+package com.benefitj.consistenthash;
+
+/**
+ * FNV-1a 64位
+ * <p>
+ * 直接按 UTF-16LE 的字节序处理字符串中的字符，不会生成中间的字节数组；无状态，线程安全
+ */
+public class Fnv1aHash implements HashFunction {
+
+  static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+  static final long PRIME = 0x100000001b3L;
+
+  @Override
+  public long hash(String key) {
+    long h = OFFSET_BASIS;
+    for (int i = 0, length = key.length(); i < length; i++) {
+      char c = key.charAt(i);
+      h ^= c & 0xFF;
+      h *= PRIME;
+      h ^= c >>> 8;
+      h *= PRIME;
+    }
+    return h;
+  }
+
+  @Override
+  public long hash(byte[] key, int off, int len) {
+    long h = OFFSET_BASIS;
+    for (int i = off, end = off + len; i < end; i++) {
+      h ^= key[i] & 0xFF;
+      h *= PRIME;
+    }
+    return h;
+  }
+
+  /**
+   * 按小端序的8个字节计算
+   */
+  @Override
+  public long hash(long key) {
+    long h = OFFSET_BASIS;
+    for (int i = 0; i < 8; i++) {
+      h ^= (key >>> (i << 3)) & 0xFF;
+      h *= PRIME;
+    }
+    return h;
+  }
+
+}
@@ -16,6 +16,8 @@
  */
 package com.benefitj.consistenthash;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Hash String to long value
  */
@@ -24,4 +26,36 @@ public interface HashFunction {
    *
    */
   long hash(String key);
+
+  /**
+   * Hash bytes to long value
+   *
+   * @param key 字节数组
+   * @return 返回哈希值
+   */
+  default long hash(byte[] key) {
+    return hash(key, 0, key.length);
+  }
+
+  /**
+   * Hash bytes to long value，默认转换成 ISO-8859-1 的字符串后计算，实现类应该重写以避免分配对象
+   *
+   * @param key 字节数组
+   * @param off 起始位置
+   * @param len 长度
+   * @return 返回哈希值
+   */
+  default long hash(byte[] key, int off, int len) {
+    return hash(new String(key, off, len, StandardCharsets.ISO_8859_1));
+  }
+
+  /**
+   * Hash long to long value，默认转换成十进制的字符串后计算，实现类应该重写以避免分配对象
+   *
+   * @param key 键
+   * @return 返回哈希值
+   */
+  default long hash(long key) {
+    return hash(Long.toString(key));
+  }
 }
@@ -0,0 +1,226 @@
+package com.benefitj.consistenthash;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Rendezvous(HRW, highest random weight) 哈希路由
+ * <p>
+ * 对每个物理节点计算 mix(hash(key) ^ seed) 的得分，得分最高的节点即路由结果。
+ * 不需要虚拟节点，增删节点时只迁移该节点相关的 key，适合节点数量较少(几个到几十个)的场景。
+ * 路由时遍历全部节点，不加锁也不分配对象
+ *
+ * @param <T>
+ */
+public class HrwRouter<T extends Node> implements NodeRouter<T> {
+
+  private final HashFunction hashFunction;
+
+  private final ReadWriteLockDelegate lock = new ReadWriteLockDelegate(false);
+  /**
+   * 物理节点: 物理节点的key -> 物理节点
+   */
+  private final Map<String, T> members = new LinkedHashMap<>();
+  /**
+   * 已发布的节点
+   */
+  private volatile Members published = new Members(new Node[0], new long[0]);
+
+  public HrwRouter() {
+    this(null);
+  }
+
+  /**
+   * @param hashFunction 哈希函数，为 null 时默认使用 {@link Murmur3Hash}
+   */
+  public HrwRouter(HashFunction hashFunction) {
+    this.hashFunction = hashFunction != null ? hashFunction : new Murmur3Hash();
+  }
+
+  @Override
+  public HashFunction getHashFunction() {
+    return hashFunction;
+  }
+
+  public int size() {
+    return published.nodes.length;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return published.nodes.length == 0;
+  }
+
+  /**
+   * @return 全部物理节点
+   */
+  @SuppressWarnings("unchecked")
+  public List<T> getNodes() {
+    return (List<T>) Collections.unmodifiableList(Arrays.asList(published.nodes));
+  }
+
+  /**
+   * 添加物理节点
+   *
+   * @param pNode 物理节点
+   */
+  public void addNode(@Nonnull T pNode) {
+    addNodes(Collections.singleton(pNode));
+  }
+
+  /**
+   * 添加物理节点
+   *
+   * @param pNodes 物理节点
+   */
+  public void addNodes(@Nonnull Collection<T> pNodes) {
+    lock.writeLock(() -> {
+      for (T pNode : pNodes) {
+        members.put(pNode.getKey(), pNode);
+      }
+      publish();
+    });
+  }
+
+  /**
+   * 移除物理节点
+   *
+   * @param pNode 物理节点
+   */
+  public void removeNode(@Nonnull T pNode) {
+    removeNodes(Collections.singleton(pNode));
+  }
+
+  /**
+   * 移除物理节点
+   *
+   * @param pNodes 物理节点
+   */
+  public void removeNodes(@Nonnull Collection<T> pNodes) {
+    lock.writeLock(() -> {
+      for (T pNode : pNodes) {
+        members.remove(pNode.getKey());
+      }
+      publish();
+    });
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock(() -> {
+      members.clear();
+      publish();
+    });
+  }
+
+  @Nullable
+  @Override
+  public T routeNode(String objectKey) {
+    final Members m = this.published;
+    final long[] seeds = m.seeds;
+    if (seeds.length == 0) {
+      return null;
+    }
+    final long hash = hashFunction.hash(objectKey);
+    int best = 0;
+    long bestScore = score(hash, seeds[0]);
+    for (int i = 1; i < seeds.length; i++) {
+      final long s = score(hash, seeds[i]);
+      final boolean higher = s > bestScore;
+      best = higher ? i : best;
+      bestScore = higher ? s : bestScore;
+    }
+    @SuppressWarnings("unchecked")
+    T node = (T) m.nodes[best];
+    return node;
+  }
+
+  /**
+   * with a specified key, route n distinct physical nodes with the highest scores,
+   * the first one is the same as {@link #routeNode(String)}
+   *
+   * @param objectKey the object key to find Nodes
+   * @param n         节点数量
+   * @return 返回按得分从高到低排列的节点
+   */
+  public List<T> routeNodes(String objectKey, int n) {
+    if (n < 0) {
+      throw new IllegalArgumentException("illegal node counts :" + n);
+    }
+    final Members m = this.published;
+    final Node[] dest = new Node[Math.min(n, m.nodes.length)];
+    final int count = select(m, hashFunction.hash(objectKey), dest);
+    @SuppressWarnings("unchecked")
+    List<T> list = (List<T>) Arrays.asList(dest);
+    return count == dest.length ? list : list.subList(0, count);
+  }
+
+  /**
+   * with a specified key, route distinct physical nodes with the highest scores (不分配对象)
+   *
+   * @param objectKey the object key to find Nodes
+   * @param dest      存放结果的数组，数组的长度即需要的节点数量
+   * @return 返回找到的节点数量
+   */
+  public int routeNodes(String objectKey, T[] dest) {
+    return select(this.published, hashFunction.hash(objectKey), dest);
+  }
+
+  /**
+   * 按得分从高到低选取节点，每一轮选出低于上一轮的最高得分(得分相同时比较序号)
+   */
+  private static int select(Members m, long hash, Node[] dest) {
+    final long[] seeds = m.seeds;
+    final int count = Math.min(dest.length, seeds.length);
+    long prevScore = 0;
+    int prevIndex = -1;
+    for (int k = 0; k < count; k++) {
+      int best = -1;
+      long bestScore = Long.MIN_VALUE;
+      for (int i = 0; i < seeds.length; i++) {
+        final long s = score(hash, seeds[i]);
+        final boolean below = k == 0 || s < prevScore || (s == prevScore && i > prevIndex);
+        if (below && (best < 0 || s > bestScore)) {
+          best = i;
+          bestScore = s;
+        }
+      }
+      dest[k] = m.nodes[best];
+      prevScore = bestScore;
+      prevIndex = best;
+    }
+    return count;
+  }
+
+  private static long score(long hash, long seed) {
+    return Murmur3Hash.fmix64(hash ^ seed);
+  }
+
+  /**
+   * 发布节点（需在写锁内调用）
+   */
+  private void publish() {
+    final Node[] nodes = members.values().toArray(new Node[0]);
+    final long[] seeds = new long[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      seeds[i] = hashFunction.hash(nodes[i].getKey());
+    }
+    this.published = new Members(nodes, seeds);
+  }
+
+  /**
+   * 物理节点和对应的种子
+   */
+  static final class Members {
+
+    final Node[] nodes;
+    final long[] seeds;
+
+    Members(Node[] nodes, long[] seeds) {
+      this.nodes = nodes;
+      this.seeds = seeds;
+    }
+  }
+
+}
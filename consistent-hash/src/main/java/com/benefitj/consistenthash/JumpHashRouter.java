@@ -0,0 +1,155 @@
+package com.benefitj.consistenthash;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Jump Consistent Hash 路由
+ * <p>
+ * 不需要虚拟节点，路由时只做少量的乘法和一次数组下标访问，不加锁也不分配对象。
+ * 节点按添加的顺序编号，只有在末尾添加或移除节点时迁移量最小，
+ * 移除中间的节点会导致其后所有编号的节点发生迁移，适合节点集合稳定、只扩缩容的场景
+ *
+ * @param <T>
+ */
+public class JumpHashRouter<T extends Node> implements NodeRouter<T> {
+
+  private static final Node[] NO_NODES = new Node[0];
+
+  private final HashFunction hashFunction;
+
+  private final ReadWriteLockDelegate lock = new ReadWriteLockDelegate(false);
+  /**
+   * 物理节点: 物理节点的key -> 物理节点，按添加的顺序
+   */
+  private final Map<String, T> members = new LinkedHashMap<>();
+  /**
+   * 已发布的节点数组，下标即桶的编号
+   */
+  private volatile Node[] buckets = NO_NODES;
+
+  public JumpHashRouter() {
+    this(null);
+  }
+
+  /**
+   * @param hashFunction 哈希函数，为 null 时默认使用 {@link Murmur3Hash}
+   */
+  public JumpHashRouter(HashFunction hashFunction) {
+    this.hashFunction = hashFunction != null ? hashFunction : new Murmur3Hash();
+  }
+
+  @Override
+  public HashFunction getHashFunction() {
+    return hashFunction;
+  }
+
+  public int size() {
+    return buckets.length;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return buckets.length == 0;
+  }
+
+  /**
+   * @return 全部物理节点，按桶的编号排序
+   */
+  @SuppressWarnings("unchecked")
+  public List<T> getNodes() {
+    return (List<T>) Collections.unmodifiableList(Arrays.asList(buckets));
+  }
+
+  /**
+   * 在末尾添加物理节点，已存在的节点保持原来的编号
+   *
+   * @param pNode 物理节点
+   */
+  public void addNode(@Nonnull T pNode) {
+    addNodes(Collections.singleton(pNode));
+  }
+
+  /**
+   * 在末尾添加物理节点，已存在的节点保持原来的编号
+   *
+   * @param pNodes 物理节点
+   */
+  public void addNodes(@Nonnull Collection<T> pNodes) {
+    lock.writeLock(() -> {
+      for (T pNode : pNodes) {
+        members.putIfAbsent(pNode.getKey(), pNode);
+      }
+      publish();
+    });
+  }
+
+  /**
+   * 移除物理节点
+   *
+   * @param pNode 物理节点
+   */
+  public void removeNode(@Nonnull T pNode) {
+    removeNodes(Collections.singleton(pNode));
+  }
+
+  /**
+   * 移除物理节点
+   *
+   * @param pNodes 物理节点
+   */
+  public void removeNodes(@Nonnull Collection<T> pNodes) {
+    lock.writeLock(() -> {
+      for (T pNode : pNodes) {
+        members.remove(pNode.getKey());
+      }
+      publish();
+    });
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock(() -> {
+      members.clear();
+      publish();
+    });
+  }
+
+  @Nullable
+  @Override
+  public T routeNode(String objectKey) {
+    final Node[] b = this.buckets;
+    if (b.length == 0) {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    T node = (T) b[jump(hashFunction.hash(objectKey), b.length)];
+    return node;
+  }
+
+  /**
+   * 发布节点数组（需在写锁内调用）
+   */
+  private void publish() {
+    this.buckets = members.values().toArray(NO_NODES);
+  }
+
+  /**
+   * Jump Consistent Hash
+   *
+   * @param key     哈希值
+   * @param buckets 桶的数量
+   * @return 返回 [0, buckets) 的桶编号
+   */
+  static int jump(long key, int buckets) {
+    long b = -1, j = 0;
+    while (j < buckets) {
+      b = j;
+      key = key * 2862933555777941757L + 1;
+      j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+    }
+    return (int) b;
+  }
+
+}
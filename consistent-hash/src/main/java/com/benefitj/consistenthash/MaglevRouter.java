@@ -0,0 +1,281 @@
+package com.benefitj.consistenthash;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Maglev 查找表路由
+ * <p>
+ * 每个物理节点根据 key 生成一个 [0, tableSize) 的排列，按排列轮流填充查找表，
+ * 路由时只需要一次数组下标访问，不加锁也不分配对象。
+ * 节点变化后查找表在 executor 中重建，重建完成前继续使用旧的查找表
+ *
+ * @param <T>
+ */
+public class MaglevRouter<T extends Node> implements NodeRouter<T> {
+
+  /**
+   * 默认的查找表大小(质数)
+   */
+  public static final int DEFAULT_TABLE_SIZE = 65537;
+
+  private final HashFunction hashFunction;
+  private final int tableSize;
+  private final Executor executor;
+
+  private final ReadWriteLockDelegate lock = new ReadWriteLockDelegate(false);
+  /**
+   * 物理节点: 物理节点的key -> 物理节点
+   */
+  private final Map<String, T> members = new LinkedHashMap<>();
+  /**
+   * 节点的修改版本
+   */
+  private long version = 0;
+  /**
+   * 已发布的查找表
+   */
+  private volatile Table table = new Table(Table.NO_ENTRIES, 0, 0);
+  /**
+   * 已提交但还未开始执行的重建任务
+   */
+  private CompletableFuture<Void> pending;
+
+  public MaglevRouter() {
+    this(DEFAULT_TABLE_SIZE, null, null);
+  }
+
+  /**
+   * @param tableSize    查找表大小，必须是质数，通常应大于节点数量的100倍
+   * @param hashFunction 哈希函数，为 null 时默认使用 {@link Murmur3Hash}
+   * @param executor     重建查找表的线程池，为 null 时默认使用 {@link ForkJoinPool#commonPool()}
+   */
+  public MaglevRouter(int tableSize, HashFunction hashFunction, Executor executor) {
+    if (tableSize < 2 || !BigInteger.valueOf(tableSize).isProbablePrime(20)) {
+      throw new IllegalArgumentException("table size must be a prime :" + tableSize);
+    }
+    this.tableSize = tableSize;
+    this.hashFunction = hashFunction != null ? hashFunction : new Murmur3Hash();
+    this.executor = executor != null ? executor : ForkJoinPool.commonPool();
+  }
+
+  public int getTableSize() {
+    return tableSize;
+  }
+
+  @Override
+  public HashFunction getHashFunction() {
+    return hashFunction;
+  }
+
+  /**
+   * @return 已发布的查找表中的物理节点数量
+   */
+  public int size() {
+    return table.nodeCount;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return table.nodeCount == 0;
+  }
+
+  /**
+   * @return 当前的全部物理节点(可能还未发布到查找表)
+   */
+  public List<T> getNodes() {
+    return lock.readLock(() -> new ArrayList<>(members.values()));
+  }
+
+  /**
+   * 添加物理节点
+   *
+   * @param pNode 物理节点
+   * @return 返回包含本次修改的查找表发布后完成的 Future
+   */
+  public CompletableFuture<Void> addNode(@Nonnull T pNode) {
+    return addNodes(Collections.singleton(pNode));
+  }
+
+  /**
+   * 添加物理节点
+   *
+   * @param pNodes 物理节点
+   * @return 返回包含本次修改的查找表发布后完成的 Future
+   */
+  public CompletableFuture<Void> addNodes(@Nonnull Collection<T> pNodes) {
+    return modify(() -> {
+      for (T pNode : pNodes) {
+        members.put(pNode.getKey(), pNode);
+      }
+    });
+  }
+
+  /**
+   * 移除物理节点
+   *
+   * @param pNode 物理节点
+   * @return 返回包含本次修改的查找表发布后完成的 Future
+   */
+  public CompletableFuture<Void> removeNode(@Nonnull T pNode) {
+    return removeNodes(Collections.singleton(pNode));
+  }
+
+  /**
+   * 移除物理节点
+   *
+   * @param pNodes 物理节点
+   * @return 返回包含本次修改的查找表发布后完成的 Future
+   */
+  public CompletableFuture<Void> removeNodes(@Nonnull Collection<T> pNodes) {
+    return modify(() -> {
+      for (T pNode : pNodes) {
+        members.remove(pNode.getKey());
+      }
+    });
+  }
+
+  /**
+   * 清空结点，立即生效
+   */
+  @Override
+  public void clear() {
+    lock.writeLock(() -> {
+      members.clear();
+      version++;
+      publish(new Table(Table.NO_ENTRIES, 0, version));
+    });
+  }
+
+  @Nullable
+  @Override
+  public T routeNode(String objectKey) {
+    final Table t = this.table;
+    if (t.nodeCount == 0) {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    T node = (T) t.entries[(int) Math.floorMod(hashFunction.hash(objectKey), (long) t.entries.length)];
+    return node;
+  }
+
+  /**
+   * 修改节点并提交重建任务
+   */
+  private CompletableFuture<Void> modify(Runnable r) {
+    return lock.writeLock(() -> {
+      r.run();
+      version++;
+      if (pending == null) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        pending = future;
+        try {
+          executor.execute(() -> rebuild(future));
+        } catch (RejectedExecutionException e) {
+          pending = null;
+          future.completeExceptionally(e);
+        }
+      }
+      return pending;
+    });
+  }
+
+  /**
+   * 重建查找表
+   */
+  private void rebuild(CompletableFuture<Void> future) {
+    try {
+      final List<T> nodes = new ArrayList<>();
+      final long[] v = new long[1];
+      lock.writeLock(() -> {
+        // 开始执行后，之后的修改需要提交新的重建任务
+        if (pending == future) {
+          pending = null;
+        }
+        nodes.addAll(members.values());
+        v[0] = version;
+      });
+      final Table t = new Table(build(nodes), nodes.size(), v[0]);
+      lock.writeLock(() -> publish(t));
+      future.complete(null);
+    } catch (Throwable e) {
+      future.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * 发布查找表，旧版本的查找表不会覆盖新版本（需在写锁内调用）
+   */
+  private void publish(Table t) {
+    if (t.version > this.table.version) {
+      this.table = t;
+    }
+  }
+
+  /**
+   * 生成查找表
+   *
+   * @param nodes 物理节点
+   * @return 返回查找表的条目
+   */
+  private Node[] build(List<T> nodes) {
+    final int n = nodes.size();
+    if (n == 0) {
+      return Table.NO_ENTRIES;
+    }
+    // 按 key 排序，保证相同的节点在不同的实例上生成相同的查找表
+    nodes.sort(Comparator.comparing(Node::getKey));
+    final int m = this.tableSize;
+    // 每个节点的排列: (offset + j * skip) % m，positions 为排列中下一个待填充的位置
+    final long[] skips = new long[n];
+    final long[] positions = new long[n];
+    for (int i = 0; i < n; i++) {
+      final long h = hashFunction.hash(nodes.get(i).getKey());
+      skips[i] = Math.floorMod(Murmur3Hash.fmix64(h), (long) (m - 1)) + 1;
+      positions[i] = Math.floorMod(h, (long) m);
+    }
+    final Node[] entries = new Node[m];
+    int filled = 0;
+    while (true) {
+      for (int i = 0; i < n; i++) {
+        long c = positions[i];
+        while (entries[(int) c] != null) {
+          c = (c + skips[i]) % m;
+        }
+        entries[(int) c] = nodes.get(i);
+        positions[i] = (c + skips[i]) % m;
+        if (++filled == m) {
+          return entries;
+        }
+      }
+    }
+  }
+
+  /**
+   * 查找表
+   */
+  static final class Table {
+
+    static final Node[] NO_ENTRIES = new Node[0];
+
+    final Node[] entries;
+    final int nodeCount;
+    /**
+     * 生成查找表时节点的修改版本
+     */
+    final long version;
+
+    Table(Node[] entries, int nodeCount, long version) {
+      this.entries = entries;
+      this.nodeCount = nodeCount;
+      this.version = version;
+    }
+  }
+
+}
@@ -7,41 +7,87 @@ import java.util.WeakHashMap;
 
 /**
  * HASH生成
+ * <p>
+ * MessageDigest 不是线程安全的，每个线程使用各自的 MessageDigest 和缓存，计算时不加锁
  */
 public class MessageDigestHash implements HashFunction {
 
-  private final MessageDigest md;
-
-  private final Map<String, Long> hashCache = new WeakHashMap<>();
+  private final String algorithm;
+  /**
+   * 每个线程的 MessageDigest
+   */
+  private final ThreadLocal<MessageDigest> mdLocal;
+  /**
+   * 每个线程的哈希值缓存
+   */
+  private final ThreadLocal<Map<String, Long>> hashCacheLocal = ThreadLocal.withInitial(WeakHashMap::new);
 
   public MessageDigestHash(String algorithm) {
-    try {
-      this.md = MessageDigest.getInstance(algorithm);
-    } catch (NoSuchAlgorithmException e) {
-      throw new IllegalStateException(e);
-    }
+    final MessageDigest md = newDigest(algorithm);
+    this.algorithm = md.getAlgorithm();
+    this.mdLocal = ThreadLocal.withInitial(() -> newDigest(algorithm));
+    this.mdLocal.set(md);
   }
 
   @Override
   public long hash(String key) {
-    long h;
-    synchronized (this) {
-      h = hashCache.getOrDefault(key, 0L);
-      if (h == 0) {
-        md.reset();
-        md.update(key.getBytes());
-        byte[] digest = md.digest();
-        for (int i = 0; i < 4; i++) {
-          h <<= 8;
-          h |= ((int) digest[i]) & 0xFF;
-        }
-        hashCache.put(key, h);
-      }
+    final Map<String, Long> hashCache = hashCacheLocal.get();
+    long h = hashCache.getOrDefault(key, 0L);
+    if (h == 0) {
+      final MessageDigest md = mdLocal.get();
+      md.reset();
+      md.update(key.getBytes());
+      h = digest(md);
+      hashCache.put(key, h);
+    }
+    return h;
+  }
+
+  @Override
+  public long hash(byte[] key, int off, int len) {
+    final MessageDigest md = mdLocal.get();
+    md.reset();
+    md.update(key, off, len);
+    return digest(md);
+  }
+
+  /**
+   * 按小端序的8个字节计算
+   */
+  @Override
+  public long hash(long key) {
+    final byte[] buf = new byte[8];
+    for (int i = 0; i < 8; i++) {
+      buf[i] = (byte) (key >>> (i << 3));
+    }
+    final MessageDigest md = mdLocal.get();
+    md.reset();
+    md.update(buf, 0, 8);
+    return digest(md);
+  }
+
+  /**
+   * 取摘要的前4个字节
+   */
+  private static long digest(MessageDigest md) {
+    byte[] digest = md.digest();
+    long h = 0;
+    for (int i = 0; i < 4; i++) {
+      h <<= 8;
+      h |= ((int) digest[i]) & 0xFF;
     }
     return h;
   }
 
+  private static MessageDigest newDigest(String algorithm) {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   public String getAlgorithm() {
-    return md.getAlgorithm();
+    return algorithm;
   }
 }
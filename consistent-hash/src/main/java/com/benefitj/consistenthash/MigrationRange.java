@@ -0,0 +1,68 @@
+package com.benefitj.consistenthash;
+
+/**
+ * 节点变化时迁移的哈希区间 (startHash, endHash]
+ * <p>
+ * 区间跨越哈希环的终点时 startHash 大于 endHash
+ *
+ * @param <T>
+ */
+public final class MigrationRange<T extends Node> {
+
+  /**
+   * 区间起点(不包含)
+   */
+  private final long startHash;
+  /**
+   * 区间终点(包含)
+   */
+  private final long endHash;
+  /**
+   * 原来的节点
+   */
+  private final T from;
+  /**
+   * 迁移后的节点
+   */
+  private final T to;
+
+  public MigrationRange(long startHash, long endHash, T from, T to) {
+    this.startHash = startHash;
+    this.endHash = endHash;
+    this.from = from;
+    this.to = to;
+  }
+
+  public long getStartHash() {
+    return startHash;
+  }
+
+  public long getEndHash() {
+    return endHash;
+  }
+
+  public T getFrom() {
+    return from;
+  }
+
+  public T getTo() {
+    return to;
+  }
+
+  /**
+   * 判断哈希值是否在区间内
+   *
+   * @param hash 哈希值
+   * @return 返回是否在区间内
+   */
+  public boolean contains(long hash) {
+    return startHash < endHash
+        ? (hash > startHash && hash <= endHash)
+        : (hash > startHash || hash <= endHash);
+  }
+
+  @Override
+  public String toString() {
+    return "(" + startHash + ", " + endHash + "] " + from + " -> " + to;
+  }
+}
@@ -0,0 +1,173 @@
+package com.benefitj.consistenthash;
+
+/**
+ * MurmurHash3 x64 128位，取结果的低64位
+ * <p>
+ * 直接按 UTF-16LE 的字节序处理字符串中的字符，不会生成中间的字节数组；无状态，线程安全
+ */
+public class Murmur3Hash implements HashFunction {
+
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+
+  private final int seed;
+
+  public Murmur3Hash() {
+    this(0);
+  }
+
+  public Murmur3Hash(int seed) {
+    this.seed = seed;
+  }
+
+  public int getSeed() {
+    return seed;
+  }
+
+  @Override
+  public long hash(String key) {
+    final int length = key.length();
+    long h1 = seed & 0xFFFFFFFFL;
+    long h2 = h1;
+    // 每个块16个字节，即8个字符
+    final int blockEnd = length & ~7;
+    for (int i = 0; i < blockEnd; i += 8) {
+      long k1 = getLong(key, i);
+      long k2 = getLong(key, i + 4);
+
+      h1 ^= mixK1(k1);
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+
+      h2 ^= mixK2(k2);
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    final int remaining = length - blockEnd;
+    if (remaining > 0) {
+      long k1 = 0, k2 = 0;
+      for (int i = 0; i < remaining; i++) {
+        long c = key.charAt(blockEnd + i);
+        if (i < 4) {
+          k1 |= c << (i << 4);
+        } else {
+          k2 |= c << ((i - 4) << 4);
+        }
+      }
+      h1 ^= mixK1(k1);
+      h2 ^= mixK2(k2);
+    }
+
+    return finish(h1, h2, ((long) length) << 1);
+  }
+
+  @Override
+  public long hash(byte[] key, int off, int len) {
+    long h1 = seed & 0xFFFFFFFFL;
+    long h2 = h1;
+    final int blockEnd = off + (len & ~15);
+    for (int i = off; i < blockEnd; i += 16) {
+      long k1 = getLong(key, i);
+      long k2 = getLong(key, i + 8);
+
+      h1 ^= mixK1(k1);
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+
+      h2 ^= mixK2(k2);
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    final int remaining = len & 15;
+    if (remaining > 0) {
+      long k1 = 0, k2 = 0;
+      for (int i = 0; i < remaining; i++) {
+        long b = key[blockEnd + i] & 0xFFL;
+        if (i < 8) {
+          k1 |= b << (i << 3);
+        } else {
+          k2 |= b << ((i - 8) << 3);
+        }
+      }
+      h1 ^= mixK1(k1);
+      h2 ^= mixK2(k2);
+    }
+    return finish(h1, h2, len);
+  }
+
+  /**
+   * 按小端序的8个字节计算
+   */
+  @Override
+  public long hash(long key) {
+    long h1 = seed & 0xFFFFFFFFL;
+    long h2 = h1;
+    h1 ^= mixK1(key);
+    return finish(h1, h2, 8);
+  }
+
+  private static long finish(long h1, long h2, long byteLength) {
+    h1 ^= byteLength;
+    h2 ^= byteLength;
+    h1 += h2;
+    h2 += h1;
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+    h1 += h2;
+    return h1;
+  }
+
+  /**
+   * 以小端序读取4个字符
+   */
+  static long getLong(String key, int index) {
+    return ((long) key.charAt(index))
+        | ((long) key.charAt(index + 1) << 16)
+        | ((long) key.charAt(index + 2) << 32)
+        | ((long) key.charAt(index + 3) << 48);
+  }
+
+  /**
+   * 以小端序读取8个字节
+   */
+  static long getLong(byte[] key, int index) {
+    return (key[index] & 0xFFL)
+        | ((key[index + 1] & 0xFFL) << 8)
+        | ((key[index + 2] & 0xFFL) << 16)
+        | ((key[index + 3] & 0xFFL) << 24)
+        | ((key[index + 4] & 0xFFL) << 32)
+        | ((key[index + 5] & 0xFFL) << 40)
+        | ((key[index + 6] & 0xFFL) << 48)
+        | ((key[index + 7] & 0xFFL) << 56);
+  }
+
+  private static long mixK1(long k1) {
+    k1 *= C1;
+    k1 = Long.rotateLeft(k1, 31);
+    k1 *= C2;
+    return k1;
+  }
+
+  private static long mixK2(long k2) {
+    k2 *= C2;
+    k2 = Long.rotateLeft(k2, 33);
+    k2 *= C1;
+    return k2;
+  }
+
+  static long fmix64(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+}
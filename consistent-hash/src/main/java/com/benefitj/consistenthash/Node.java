@@ -31,4 +31,23 @@ public interface Node {
    * @return the key which will be used for hash mapping
    */
   String getKey();
+
+  /**
+   * 结点的权重，用于按权重计算虚拟节点数量
+   *
+   * @return the weight of the node, default 1
+   */
+  default int getWeight() {
+    return 1;
+  }
+
+  /**
+   * 结点所在的区域(可用区、机房或机架)，用于分区域路由
+   *
+   * @return the zone of the node, default null
+   * @see ZoneAwareRouter
+   */
+  default String getZone() {
+    return null;
+  }
 }
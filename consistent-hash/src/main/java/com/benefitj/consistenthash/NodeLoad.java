@@ -0,0 +1,82 @@
+package com.benefitj.consistenthash;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 物理节点的负载
+ * <p>
+ * 每个物理节点在加入哈希环时创建一个，被之后发布的快照共同引用；节点被移除后不再被新的快照引用，
+ * 但仍可以释放之前获取的负载，重新加入的节点使用新的负载，互不影响
+ *
+ * @param <T>
+ */
+public final class NodeLoad<T extends Node> {
+
+  private final T node;
+  /**
+   * 当前负载
+   */
+  private final AtomicInteger load = new AtomicInteger();
+  /**
+   * 全部物理节点的负载之和
+   */
+  private final AtomicLong totalLoad;
+
+  NodeLoad(T node, AtomicLong totalLoad) {
+    this.node = node;
+    this.totalLoad = totalLoad;
+  }
+
+  public T getNode() {
+    return node;
+  }
+
+  /**
+   * @return 返回当前负载
+   */
+  public int get() {
+    return load.get();
+  }
+
+  /**
+   * 负载小于容量时加1
+   *
+   * @param capacity 容量
+   * @return 返回是否成功
+   */
+  boolean tryAcquire(int capacity) {
+    for (int l = load.get(); l < capacity; l = load.get()) {
+      if (load.compareAndSet(l, l + 1)) {
+        totalLoad.incrementAndGet();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 负载加1
+   */
+  void acquire() {
+    load.incrementAndGet();
+    totalLoad.incrementAndGet();
+  }
+
+  /**
+   * 释放负载，负载减1，已经为0时忽略
+   */
+  public void release() {
+    for (int l = load.get(); l > 0; l = load.get()) {
+      if (load.compareAndSet(l, l - 1)) {
+        totalLoad.decrementAndGet();
+        return;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return node + "(" + load.get() + ")";
+  }
+}
@@ -0,0 +1,36 @@
+package com.benefitj.consistenthash;
+
+import javax.annotation.Nullable;
+
+/**
+ * 节点路由
+ *
+ * @param <T>
+ */
+public interface NodeRouter<T extends Node> {
+
+  /**
+   * with a specified key, route the Node instance which the object key should be allocated to
+   *
+   * @param objectKey the object key to find a Node
+   * @return 返回节点，没有节点时返回 null
+   */
+  @Nullable
+  T routeNode(String objectKey);
+
+  /**
+   * @return 是否没有可路由的节点
+   */
+  boolean isEmpty();
+
+  /**
+   * @return 哈希函数
+   */
+  HashFunction getHashFunction();
+
+  /**
+   * 清空结点
+   */
+  void clear();
+
+}
@@ -0,0 +1,151 @@
+package com.benefitj.consistenthash;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * 哈希环的二进制文件
+ * <p>
+ * 格式(大端序):
+ * <pre>
+ * int    magic
+ * int    version
+ * string 哈希函数的类名
+ * long   哈希函数对探测 key 的哈希值
+ * int    物理节点数量
+ * string[] 物理节点的key
+ * int    虚拟节点数量
+ * 每个虚拟节点(按哈希值升序):
+ *   long 哈希值
+ *   int  物理节点的序号
+ *   int  副本索引
+ * </pre>
+ * string 为 int 长度 + UTF-8 字节
+ */
+final class RingFile {
+
+  static final int MAGIC = 0x43485247;
+  static final int VERSION = 1;
+  /**
+   * 用于检查哈希函数是否一致的探测 key
+   */
+  static final String PROBE_KEY = "benefitj-consistent-hash";
+
+  /**
+   * 物理节点的key
+   */
+  final String[] keys;
+  /**
+   * 虚拟节点的哈希值(升序)
+   */
+  final long[] hashes;
+  /**
+   * 虚拟节点对应的物理节点的序号
+   */
+  final int[] ordinals;
+  /**
+   * 虚拟节点的副本索引
+   */
+  final int[] replicas;
+
+  private RingFile(String[] keys, long[] hashes, int[] ordinals, int[] replicas) {
+    this.keys = keys;
+    this.hashes = hashes;
+    this.ordinals = ordinals;
+    this.replicas = replicas;
+  }
+
+  /**
+   * 写入哈希环
+   *
+   * @param file         文件
+   * @param hashFunction 哈希函数
+   * @param ring         哈希环
+   * @param keys         全部物理节点的key
+   */
+  static <T extends Node> void write(File file,
+                                     HashFunction hashFunction,
+                                     SortedMap<Long, VirtualNode<T>> ring,
+                                     Iterable<String> keys) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      writeString(out, hashFunction.getClass().getName());
+      out.writeLong(hashFunction.hash(PROBE_KEY));
+      final Map<String, Integer> ordinals = new HashMap<>();
+      for (String key : keys) {
+        ordinals.put(key, ordinals.size());
+      }
+      out.writeInt(ordinals.size());
+      for (String key : keys) {
+        writeString(out, key);
+      }
+      out.writeInt(ring.size());
+      for (Map.Entry<Long, VirtualNode<T>> entry : ring.entrySet()) {
+        out.writeLong(entry.getKey());
+        out.writeInt(ordinals.get(entry.getValue().getPhysicalNode().getKey()));
+        out.writeInt(entry.getValue().getReplicaIndex());
+      }
+    }
+  }
+
+  /**
+   * 通过内存映射读取哈希环
+   *
+   * @param file         文件
+   * @param hashFunction 哈希函数，与写入时的哈希函数不一致时抛出异常
+   * @return 返回读取的哈希环
+   */
+  static RingFile read(File file, HashFunction hashFunction) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+         FileChannel channel = raf.getChannel()) {
+      final MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buf.getInt() != MAGIC) {
+        throw new IOException("not a hash ring file: " + file);
+      }
+      final int version = buf.getInt();
+      if (version != VERSION) {
+        throw new IOException("unsupported hash ring file version: " + version);
+      }
+      final String hashFunctionName = readString(buf);
+      final long probe = buf.getLong();
+      if (!hashFunctionName.equals(hashFunction.getClass().getName())
+          || probe != hashFunction.hash(PROBE_KEY)) {
+        throw new IllegalStateException("hash function mismatch, expected "
+            + hashFunctionName + " but was " + hashFunction.getClass().getName());
+      }
+      final String[] keys = new String[buf.getInt()];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = readString(buf);
+      }
+      final int size = buf.getInt();
+      final long[] hashes = new long[size];
+      final int[] ordinals = new int[size];
+      final int[] replicas = new int[size];
+      for (int i = 0; i < size; i++) {
+        hashes[i] = buf.getLong();
+        ordinals[i] = buf.getInt();
+        replicas[i] = buf.getInt();
+      }
+      return new RingFile(keys, hashes, ordinals, replicas);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String str) throws IOException {
+    final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(MappedByteBuffer buf) {
+    final byte[] bytes = new byte[buf.getInt()];
+    buf.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,252 @@
+package com.benefitj.consistenthash;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * 哈希环的不可变快照
+ * <p>
+ * 虚拟节点的哈希值按升序存放在 long[] 中，对应的物理节点存放在平行数组中，
+ * 路由时只需要一次二分查找，不加锁也不分配对象
+ *
+ * @param <T>
+ */
+final class RingSnapshot<T extends Node> {
+
+  @SuppressWarnings("rawtypes")
+  private static final RingSnapshot EMPTY = new RingSnapshot<>(new long[0], new Node[0], new NodeLoad[0], 0);
+
+  @SuppressWarnings("unchecked")
+  static <T extends Node> RingSnapshot<T> empty() {
+    return (RingSnapshot<T>) EMPTY;
+  }
+
+  /**
+   * 根据哈希环创建快照
+   *
+   * @param ring      哈希环
+   * @param nodeCount 物理节点数量
+   * @param loads     物理节点的负载: 物理节点的key -> 负载
+   * @return 返回快照
+   */
+  static <T extends Node> RingSnapshot<T> of(SortedMap<Long, VirtualNode<T>> ring,
+                                              int nodeCount,
+                                              Map<String, NodeLoad<T>> loads) {
+    if (ring.isEmpty()) {
+      return empty();
+    }
+    final long[] hashes = new long[ring.size()];
+    final Node[] nodes = new Node[ring.size()];
+    final NodeLoad<?>[] nodeLoads = new NodeLoad[ring.size()];
+    int i = 0;
+    for (Map.Entry<Long, VirtualNode<T>> entry : ring.entrySet()) {
+      hashes[i] = entry.getKey();
+      nodes[i] = entry.getValue().getPhysicalNode();
+      nodeLoads[i] = loads.get(nodes[i].getKey());
+      i++;
+    }
+    return new RingSnapshot<>(hashes, nodes, nodeLoads, nodeCount);
+  }
+
+  /**
+   * 虚拟节点的哈希值(升序)
+   */
+  private final long[] hashes;
+  /**
+   * 虚拟节点对应的物理节点
+   */
+  private final Node[] nodes;
+  /**
+   * 虚拟节点对应的物理节点的负载
+   */
+  private final NodeLoad<?>[] loads;
+  /**
+   * 物理节点数量
+   */
+  private final int nodeCount;
+
+  private RingSnapshot(long[] hashes, Node[] nodes, NodeLoad<?>[] loads, int nodeCount) {
+    this.hashes = hashes;
+    this.nodes = nodes;
+    this.loads = loads;
+    this.nodeCount = nodeCount;
+  }
+
+  /**
+   * @return 虚拟节点数量
+   */
+  int size() {
+    return hashes.length;
+  }
+
+  boolean isEmpty() {
+    return hashes.length == 0;
+  }
+
+  /**
+   * @return 物理节点数量
+   */
+  int nodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * 查找顺时针方向第一个哈希值大于等于 hash 的虚拟节点，超出末尾时回到环的起点
+   *
+   * @param hash 哈希值
+   * @return 返回虚拟节点的索引，环为空时返回 -1
+   */
+  int indexOf(long hash) {
+    final long[] hashes = this.hashes;
+    int low = 0, high = hashes.length - 1;
+    if (high < 0) {
+      return -1;
+    }
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (hashes[mid] < hash) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low < hashes.length ? low : 0;
+  }
+
+  /**
+   * 获取虚拟节点的哈希值
+   */
+  long hashAt(int index) {
+    return hashes[index];
+  }
+
+  /**
+   * 获取虚拟节点对应的物理节点
+   */
+  @SuppressWarnings("unchecked")
+  T nodeAt(int index) {
+    return (T) nodes[index];
+  }
+
+  /**
+   * 获取虚拟节点对应的物理节点的负载
+   */
+  @SuppressWarnings("unchecked")
+  NodeLoad<T> loadAt(int index) {
+    return (NodeLoad<T>) loads[index];
+  }
+
+  /**
+   * 路由到哈希值对应的物理节点
+   *
+   * @param hash 哈希值
+   * @return 返回物理节点，环为空时返回 null
+   */
+  T route(long hash) {
+    int index = indexOf(hash);
+    return index >= 0 ? nodeAt(index) : null;
+  }
+
+  /**
+   * 从哈希值的位置顺时针查找不重复的物理节点
+   *
+   * @param hash  哈希值
+   * @param dest  存放结果的数组
+   * @param count 需要的节点数量，不超过数组长度
+   * @return 返回找到的节点数量
+   */
+  int route(long hash, Node[] dest, int count) {
+    final int start = indexOf(hash);
+    if (start < 0) {
+      return 0;
+    }
+    final Node[] nodes = this.nodes;
+    final int size = nodes.length;
+    final int limit = Math.min(count, nodeCount);
+    int found = 0;
+    for (int i = 0, index = start; i < size && found < limit; i++, index++) {
+      if (index == size) {
+        index = 0;
+      }
+      final Node node = nodes[index];
+      if (!contains(dest, found, node)) {
+        dest[found++] = node;
+      }
+    }
+    return found;
+  }
+
+  private static boolean contains(Node[] array, int length, Node node) {
+    for (int i = 0; i < length; i++) {
+      if (array[i] == node || array[i].getKey().equals(node.getKey())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 比较两个快照，合并两个有序的哈希值数组，计算归属发生变化的哈希区间
+   *
+   * @param target 变化后的快照
+   * @return 返回迁移的区间，任意一个快照为空时返回空集合
+   */
+  List<MigrationRange<T>> diff(RingSnapshot<T> target) {
+    final long[] a = this.hashes, b = target.hashes;
+    if (a.length == 0 || b.length == 0) {
+      return Collections.emptyList();
+    }
+    final List<MigrationRange<T>> ranges = new ArrayList<>();
+    // 第一个区间从最大的边界开始，跨越环的终点
+    long prev = Math.max(a[a.length - 1], b[b.length - 1]);
+    boolean prevMoved = false;
+    int i = 0, j = 0;
+    while (i < a.length || j < b.length) {
+      final long x;
+      if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+        x = a[i];
+      } else {
+        x = b[j];
+      }
+      // 区间 (prev, x] 内的哈希值归属于第一个大于等于 x 的虚拟节点
+      final T from = this.nodeAt(i < a.length ? i : 0);
+      final T to = target.nodeAt(j < b.length ? j : 0);
+      if (isSameNode(from, to)) {
+        prevMoved = false;
+      } else {
+        final int last = ranges.size() - 1;
+        if (prevMoved && isSameNode(ranges.get(last).getFrom(), from) && isSameNode(ranges.get(last).getTo(), to)) {
+          ranges.set(last, new MigrationRange<>(ranges.get(last).getStartHash(), x, from, to));
+        } else {
+          ranges.add(new MigrationRange<>(prev, x, from, to));
+        }
+        prevMoved = true;
+      }
+      if (i < a.length && a[i] == x) {
+        i++;
+      }
+      if (j < b.length && b[j] == x) {
+        j++;
+      }
+      prev = x;
+    }
+    // 合并跨越环终点的首尾区间
+    if (ranges.size() > 1) {
+      final MigrationRange<T> first = ranges.get(0), last = ranges.get(ranges.size() - 1);
+      if (last.getEndHash() == first.getStartHash()
+          && isSameNode(first.getFrom(), last.getFrom())
+          && isSameNode(first.getTo(), last.getTo())) {
+        ranges.set(0, new MigrationRange<>(last.getStartHash(), first.getEndHash(), first.getFrom(), first.getTo()));
+        ranges.remove(ranges.size() - 1);
+      }
+    }
+    return ranges;
+  }
+
+  private static boolean isSameNode(Node n1, Node n2) {
+    return n1 == n2 || n1.getKey().equals(n2.getKey());
+  }
+}
@@ -0,0 +1,169 @@
+package com.benefitj.consistenthash;
+
+import java.util.*;
+
+/**
+ * 路由分布统计：每个物理节点分到的 key 的数量和占比、标准差、最大值与平均值之比
+ */
+public class RouteDistribution {
+
+  /**
+   * 使用 "key-0" ~ "key-(keyCount-1)" 作为合成的 key 统计路由分布
+   *
+   * @param router   路由
+   * @param keyCount key 的数量
+   * @return 返回路由分布
+   */
+  public static RouteDistribution analyze(NodeRouter<?> router, int keyCount) {
+    final List<String> keys = new ArrayList<>(keyCount);
+    for (int i = 0; i < keyCount; i++) {
+      keys.add("key-" + i);
+    }
+    return analyze(router, keys);
+  }
+
+  /**
+   * 统计路由分布
+   *
+   * @param router 路由
+   * @param keys   key
+   * @return 返回路由分布
+   */
+  public static RouteDistribution analyze(NodeRouter<?> router, Iterable<String> keys) {
+    final Map<String, Long> counts = new TreeMap<>();
+    long total = 0;
+    for (String key : keys) {
+      final Node node = router.routeNode(key);
+      if (node != null) {
+        counts.merge(node.getKey(), 1L, Long::sum);
+        total++;
+      }
+    }
+    return new RouteDistribution(counts, total);
+  }
+
+  /**
+   * 物理节点的key -> key 的数量
+   */
+  private final Map<String, Long> counts;
+  /**
+   * key 的总数
+   */
+  private final long total;
+  private final double mean;
+  private final double standardDeviation;
+  private final long max;
+  private final long min;
+
+  public RouteDistribution(Map<String, Long> counts, long total) {
+    this.counts = Collections.unmodifiableMap(new TreeMap<>(counts));
+    this.total = total;
+    final int n = counts.size();
+    this.mean = n > 0 ? (double) total / n : 0;
+    double variance = 0;
+    long max = 0, min = n > 0 ? Long.MAX_VALUE : 0;
+    for (Long count : counts.values()) {
+      variance += (count - mean) * (count - mean);
+      max = Math.max(max, count);
+      min = Math.min(min, count);
+    }
+    this.standardDeviation = n > 0 ? Math.sqrt(variance / n) : 0;
+    this.max = max;
+    this.min = min;
+  }
+
+  public Map<String, Long> getCounts() {
+    return counts;
+  }
+
+  /**
+   * @return 每个物理节点分到的 key 的占比
+   */
+  public Map<String, Double> getShares() {
+    final Map<String, Double> shares = new TreeMap<>();
+    counts.forEach((key, count) -> shares.put(key, total > 0 ? (double) count / total : 0));
+    return shares;
+  }
+
+  public long getTotal() {
+    return total;
+  }
+
+  public double getMean() {
+    return mean;
+  }
+
+  public double getStandardDeviation() {
+    return standardDeviation;
+  }
+
+  /**
+   * @return 变异系数: 标准差 / 平均值
+   */
+  public double getCoefficientOfVariation() {
+    return mean > 0 ? standardDeviation / mean : 0;
+  }
+
+  public long getMax() {
+    return max;
+  }
+
+  public long getMin() {
+    return min;
+  }
+
+  /**
+   * @return 最大值与平均值之比，越接近1越均衡
+   */
+  public double getMaxMeanRatio() {
+    return mean > 0 ? max / mean : 0;
+  }
+
+  /**
+   * @return 转换成 JSON
+   */
+  public String toJson() {
+    final StringBuilder sb = new StringBuilder(64 + counts.size() * 48);
+    sb.append("{\"total\":").append(total)
+        .append(",\"nodes\":").append(counts.size())
+        .append(",\"mean\":").append(mean)
+        .append(",\"standardDeviation\":").append(standardDeviation)
+        .append(",\"coefficientOfVariation\":").append(getCoefficientOfVariation())
+        .append(",\"min\":").append(min)
+        .append(",\"max\":").append(max)
+        .append(",\"maxMeanRatio\":").append(getMaxMeanRatio())
+        .append(",\"shares\":{");
+    boolean first = true;
+    for (Map.Entry<String, Long> entry : counts.entrySet()) {
+      if (!first) {
+        sb.append(',');
+      }
+      first = false;
+      appendString(sb, entry.getKey());
+      sb.append(":{\"count\":").append(entry.getValue())
+          .append(",\"share\":").append(total > 0 ? (double) entry.getValue() / total : 0)
+          .append('}');
+    }
+    return sb.append("}}").toString();
+  }
+
+  private static void appendString(StringBuilder sb, String str) {
+    sb.append('"');
+    for (int i = 0; i < str.length(); i++) {
+      final char c = str.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    sb.append('"');
+  }
+
+  @Override
+  public String toString() {
+    return toJson();
+  }
+}
@@ -30,13 +30,14 @@ public class VirtualNode<T extends Node> implements Node {
    */
   private final int replicaIndex;
 
-  private final String key;
+  /**
+   * 虚拟节点的key，首次使用时生成（从文件恢复哈希环时不需要）
+   */
+  private String key;
 
   public VirtualNode(T physicalNode, int replicaIndex) {
     this.replicaIndex = replicaIndex;
     this.physicalNode = physicalNode;
-
-    this.key = physicalNode.getKey() + "-" + replicaIndex;
   }
 
   @Override
@@ -46,7 +47,11 @@ public class VirtualNode<T extends Node> implements Node {
 
   @Override
   public String getKey() {
-    return key;
+    String k = this.key;
+    if (k == null) {
+      this.key = (k = physicalNode.getKey() + "-" + replicaIndex);
+    }
+    return k;
   }
 
   public boolean isVirtualNodeOf(T pNode) {
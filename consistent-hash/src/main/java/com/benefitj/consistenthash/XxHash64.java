@@ -0,0 +1,165 @@
+package com.benefitj.consistenthash;
+
+/**
+ * xxHash64
+ * <p>
+ * 直接按 UTF-16LE 的字节序处理字符串中的字符，不会生成中间的字节数组；无状态，线程安全
+ */
+public class XxHash64 implements HashFunction {
+
+  private static final long P1 = 0x9E3779B185EBCA87L;
+  private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+  private static final long P3 = 0x165667B19E3779F9L;
+  private static final long P4 = 0x85EBCA77C2B2AE63L;
+  private static final long P5 = 0x27D4EB2F165667C5L;
+
+  private final long seed;
+
+  public XxHash64() {
+    this(0L);
+  }
+
+  public XxHash64(long seed) {
+    this.seed = seed;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  @Override
+  public long hash(String key) {
+    final int length = key.length();
+    int i = 0;
+    long h;
+    // 每个条带32个字节，即16个字符
+    if (length >= 16) {
+      long v1 = seed + P1 + P2;
+      long v2 = seed + P2;
+      long v3 = seed;
+      long v4 = seed - P1;
+      final int limit = length - 16;
+      do {
+        v1 = round(v1, Murmur3Hash.getLong(key, i));
+        v2 = round(v2, Murmur3Hash.getLong(key, i + 4));
+        v3 = round(v3, Murmur3Hash.getLong(key, i + 8));
+        v4 = round(v4, Murmur3Hash.getLong(key, i + 12));
+        i += 16;
+      } while (i <= limit);
+
+      h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+      h = mergeRound(h, v1);
+      h = mergeRound(h, v2);
+      h = mergeRound(h, v3);
+      h = mergeRound(h, v4);
+    } else {
+      h = seed + P5;
+    }
+
+    h += ((long) length) << 1;
+
+    for (; i + 4 <= length; i += 4) {
+      h ^= round(0, Murmur3Hash.getLong(key, i));
+      h = Long.rotateLeft(h, 27) * P1 + P4;
+    }
+    if (i + 2 <= length) {
+      long k = ((long) key.charAt(i)) | ((long) key.charAt(i + 1) << 16);
+      h ^= k * P1;
+      h = Long.rotateLeft(h, 23) * P2 + P3;
+      i += 2;
+    }
+    if (i < length) {
+      char c = key.charAt(i);
+      h = tail(h, c & 0xFF);
+      h = tail(h, c >>> 8);
+    }
+    return avalanche(h);
+  }
+
+  @Override
+  public long hash(byte[] key, int off, int len) {
+    final int end = off + len;
+    int i = off;
+    long h;
+    if (len >= 32) {
+      long v1 = seed + P1 + P2;
+      long v2 = seed + P2;
+      long v3 = seed;
+      long v4 = seed - P1;
+      final int limit = end - 32;
+      do {
+        v1 = round(v1, Murmur3Hash.getLong(key, i));
+        v2 = round(v2, Murmur3Hash.getLong(key, i + 8));
+        v3 = round(v3, Murmur3Hash.getLong(key, i + 16));
+        v4 = round(v4, Murmur3Hash.getLong(key, i + 24));
+        i += 32;
+      } while (i <= limit);
+
+      h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+      h = mergeRound(h, v1);
+      h = mergeRound(h, v2);
+      h = mergeRound(h, v3);
+      h = mergeRound(h, v4);
+    } else {
+      h = seed + P5;
+    }
+
+    h += len;
+
+    for (; i + 8 <= end; i += 8) {
+      h ^= round(0, Murmur3Hash.getLong(key, i));
+      h = Long.rotateLeft(h, 27) * P1 + P4;
+    }
+    if (i + 4 <= end) {
+      long k = (key[i] & 0xFFL)
+          | ((key[i + 1] & 0xFFL) << 8)
+          | ((key[i + 2] & 0xFFL) << 16)
+          | ((key[i + 3] & 0xFFL) << 24);
+      h ^= k * P1;
+      h = Long.rotateLeft(h, 23) * P2 + P3;
+      i += 4;
+    }
+    for (; i < end; i++) {
+      h = tail(h, key[i] & 0xFF);
+    }
+    return avalanche(h);
+  }
+
+  /**
+   * 按小端序的8个字节计算
+   */
+  @Override
+  public long hash(long key) {
+    long h = seed + P5 + 8;
+    h ^= round(0, key);
+    h = Long.rotateLeft(h, 27) * P1 + P4;
+    return avalanche(h);
+  }
+
+  static long round(long acc, long input) {
+    acc += input * P2;
+    acc = Long.rotateLeft(acc, 31);
+    acc *= P1;
+    return acc;
+  }
+
+  static long mergeRound(long acc, long val) {
+    acc ^= round(0, val);
+    return acc * P1 + P4;
+  }
+
+  static long tail(long h, int b) {
+    h ^= b * P5;
+    return Long.rotateLeft(h, 11) * P1;
+  }
+
+  static long avalanche(long h) {
+    h ^= h >>> 33;
+    h *= P2;
+    h ^= h >>> 29;
+    h *= P3;
+    h ^= h >>> 32;
+    return h;
+  }
+
+}
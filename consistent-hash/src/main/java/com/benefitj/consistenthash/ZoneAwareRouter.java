@@ -0,0 +1,287 @@
+package com.benefitj.consistenthash;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 分区域的一致性哈希路由
+ * <p>
+ * 先在区域的哈希环上找到区域，再在该区域的节点哈希环上找到节点，两级都使用不可变快照，路由时不加锁。
+ * 区域的虚拟节点数量与区域内的物理节点数量成正比，区域分到的 key 与其节点数量相符。
+ * 区域通过 {@link Node#getZone()} 获取，为 null 时归入 {@link #DEFAULT_ZONE}
+ *
+ * @param <T>
+ */
+public class ZoneAwareRouter<T extends Node> implements NodeRouter<T> {
+
+  /**
+   * 默认区域
+   */
+  public static final String DEFAULT_ZONE = "default";
+
+  private final HashFunction hashFunction;
+  private final int maxVirtualNodeCount;
+  /**
+   * 区域的哈希环上每个物理节点对应的虚拟节点数量
+   */
+  private final int zoneVNodesPerNode;
+
+  private final ReadWriteLockDelegate lock = new ReadWriteLockDelegate(false);
+  /**
+   * 区域的哈希环
+   */
+  private final ConsistentHashRouter<ZoneNode> zoneRing;
+  /**
+   * 区域 -> 区域内节点的哈希环
+   */
+  private final Map<String, ConsistentHashRouter<T>> zones = new ConcurrentHashMap<>();
+
+  public ZoneAwareRouter() {
+    this(Integer.MAX_VALUE, 100, null);
+  }
+
+  /**
+   * @param maxVirtualNodeCount 节点的最大虚拟节点数
+   * @param zoneVNodesPerNode   区域的哈希环上每个物理节点对应的虚拟节点数量
+   * @param hashFunction        哈希函数，为 null 时默认使用 {@link Murmur3Hash}
+   */
+  public ZoneAwareRouter(int maxVirtualNodeCount, int zoneVNodesPerNode, HashFunction hashFunction) {
+    if (zoneVNodesPerNode <= 0) {
+      throw new IllegalArgumentException("illegal virtual node counts :" + zoneVNodesPerNode);
+    }
+    this.maxVirtualNodeCount = maxVirtualNodeCount;
+    this.zoneVNodesPerNode = zoneVNodesPerNode;
+    this.hashFunction = hashFunction != null ? hashFunction : new Murmur3Hash();
+    this.zoneRing = new ConsistentHashRouter<>(Integer.MAX_VALUE, this.hashFunction);
+  }
+
+  @Override
+  public HashFunction getHashFunction() {
+    return hashFunction;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return zoneRing.isEmpty();
+  }
+
+  /**
+   * @return 全部区域
+   */
+  public Set<String> getZones() {
+    return Collections.unmodifiableSet(zones.keySet());
+  }
+
+  /**
+   * 获取区域内节点的哈希环
+   *
+   * @param zone 区域
+   * @return 返回哈希环，区域不存在时返回 null
+   */
+  @Nullable
+  public ConsistentHashRouter<T> getZoneRouter(String zone) {
+    return zones.get(zone);
+  }
+
+  /**
+   * add physic node to the hash ring of its zone with some virtual nodes
+   *
+   * @param pNode      physical node needs added to hash ring
+   * @param vNodeCount the number of virtual node of the physical node. Value should be greater than or equals to 0
+   */
+  public void addNode(@Nonnull T pNode, int vNodeCount) {
+    addNodes(Collections.singleton(pNode), vNodeCount);
+  }
+
+  /**
+   * add physic node to the hash ring of its zone with some virtual nodes
+   *
+   * @param pNodes     physical node needs added to hash ring
+   * @param vNodeCount the number of virtual node of the physical node. Value should be greater than or equals to 0
+   */
+  public void addNodes(@Nonnull Collection<T> pNodes, int vNodeCount) {
+    if (vNodeCount < 0) {
+      throw new IllegalArgumentException("illegal virtual node counts :" + vNodeCount);
+    }
+    if (vNodeCount == 0 || pNodes.isEmpty()) {
+      // 没有需要添加的虚拟节点，不创建空的区域
+      return;
+    }
+    lock.writeLock(() -> groupByZone(pNodes).forEach((zone, group) -> {
+      // 先添加区域内的节点，再添加区域，路由时不会找到空的区域
+      final ConsistentHashRouter<T> router = zones.computeIfAbsent(zone,
+          z -> new ConsistentHashRouter<>(maxVirtualNodeCount, hashFunction));
+      router.addNodes(group, vNodeCount);
+      reweightZone(zone, router);
+    }));
+  }
+
+  /**
+   * remove the physical node from the hash ring of its zone
+   *
+   * @param pNode physical node
+   */
+  public void removeNode(@Nonnull T pNode) {
+    removeNodes(Collections.singleton(pNode));
+  }
+
+  /**
+   * remove the physical node from the hash ring of its zone
+   *
+   * @param pNodes physical node
+   */
+  public void removeNodes(@Nonnull Collection<T> pNodes) {
+    lock.writeLock(() -> groupByZone(pNodes).forEach((zone, group) -> {
+      final ConsistentHashRouter<T> router = zones.get(zone);
+      if (router != null) {
+        if (countPresent(router, group) >= router.getNodeCount()) {
+          // 移除后区域内没有节点：先从区域的哈希环上移除区域，再移除节点，路由时不会找到空的区域
+          zoneRing.reweightNode(new ZoneNode(zone), 0);
+          router.removeNodes(group);
+          zones.remove(zone);
+        } else {
+          router.removeNodes(group);
+          reweightZone(zone, router);
+        }
+      }
+    }));
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock(() -> {
+      zoneRing.clear();
+      zones.clear();
+    });
+  }
+
+  @Nullable
+  @Override
+  public T routeNode(String objectKey) {
+    final long hash = hashFunction.hash(objectKey);
+    final RingSnapshot<ZoneNode> zoneSnapshot = zoneRing.getSnapshot();
+    final ZoneNode zone = zoneSnapshot.route(zoneHash(hash));
+    if (zone == null) {
+      return null;
+    }
+    final T node = routeInZone(zone.getKey(), hash);
+    if (node != null) {
+      return node;
+    }
+    // 区域正在被移除(快照读取之后区域内的节点已被移除)，顺延到下一个区域
+    final List<T> nodes = routeZones(zoneSnapshot, hash, 1);
+    return nodes.isEmpty() ? null : nodes.get(0);
+  }
+
+  /**
+   * with a specified key, route n physical nodes in distinct zones, the first one is the same as {@link #routeNode(String)}
+   *
+   * @param objectKey the object key to find the nearest Nodes
+   * @param n         节点数量
+   * @return 返回不同区域的节点，区域不足 n 个时每个区域返回一个节点
+   */
+  public List<T> routeNodes(String objectKey, int n) {
+    if (n < 0) {
+      throw new IllegalArgumentException("illegal node counts :" + n);
+    }
+    final RingSnapshot<ZoneNode> zoneSnapshot = zoneRing.getSnapshot();
+    if (zoneSnapshot.isEmpty() || n == 0) {
+      return Collections.emptyList();
+    }
+    return routeZones(zoneSnapshot, hashFunction.hash(objectKey), n);
+  }
+
+  /**
+   * 按区域哈希环上的顺序依次在每个区域中路由，跳过没有节点的区域(正在被移除)，直到找到 n 个节点
+   */
+  private List<T> routeZones(RingSnapshot<ZoneNode> zoneSnapshot, long hash, int n) {
+    final Node[] zoneNodes = new Node[zoneSnapshot.nodeCount()];
+    final int count = zoneSnapshot.route(zoneHash(hash), zoneNodes, zoneNodes.length);
+    final List<T> nodes = new ArrayList<>(Math.min(n, count));
+    for (int i = 0; i < count && nodes.size() < n; i++) {
+      final T node = routeInZone(zoneNodes[i].getKey(), hash);
+      if (node != null) {
+        nodes.add(node);
+      }
+    }
+    return nodes;
+  }
+
+  @Nullable
+  private T routeInZone(String zone, long hash) {
+    final ConsistentHashRouter<T> router = zones.get(zone);
+    return router != null ? router.getSnapshot().route(hash) : null;
+  }
+
+  /**
+   * 区域的哈希值，与节点的哈希值不相关，避免同一区域的 key 集中在节点哈希环的同一段
+   */
+  private long zoneHash(long hash) {
+    return hashFunction.hash(hash);
+  }
+
+  /**
+   * 根据区域内的物理节点数量调整区域的虚拟节点数量（需在写锁内调用）
+   */
+  private void reweightZone(String zone, ConsistentHashRouter<T> router) {
+    final long vNodeCount = (long) router.getNodeCount() * zoneVNodesPerNode;
+    zoneRing.reweightNode(new ZoneNode(zone), (int) Math.min(vNodeCount, Integer.MAX_VALUE));
+  }
+
+  /**
+   * @return 哈希环上包含的节点数量(按 key 去重)
+   */
+  private int countPresent(ConsistentHashRouter<T> router, List<T> group) {
+    final Set<String> keys = new HashSet<>(group.size() * 2);
+    for (T pNode : group) {
+      if (router.getReplicas(pNode) > 0) {
+        keys.add(pNode.getKey());
+      }
+    }
+    return keys.size();
+  }
+
+  private Map<String, List<T>> groupByZone(Collection<T> pNodes) {
+    final Map<String, List<T>> groups = new LinkedHashMap<>();
+    for (T pNode : pNodes) {
+      final String zone = pNode.getZone();
+      groups.computeIfAbsent(zone != null ? zone : DEFAULT_ZONE, z -> new ArrayList<>()).add(pNode);
+    }
+    return groups;
+  }
+
+  /**
+   * 区域的哈希环上的节点
+   */
+  static final class ZoneNode implements Node {
+
+    private final String zone;
+
+    ZoneNode(String zone) {
+      this.zone = zone;
+    }
+
+    @Override
+    public String getNodeAddress() {
+      return zone;
+    }
+
+    @Override
+    public String getKey() {
+      return zone;
+    }
+
+    @Override
+    public String getZone() {
+      return zone;
+    }
+
+    @Override
+    public String toString() {
+      return zone;
+    }
+  }
+
+}
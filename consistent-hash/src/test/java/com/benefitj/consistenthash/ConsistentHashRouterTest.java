@@ -0,0 +1,87 @@
+package com.benefitj.consistenthash;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class ConsistentHashRouterTest {
+
+  private final MyServiceNode node1 = new MyServiceNode("IDC1", "127.0.0.1", 8080);
+  private final MyServiceNode node2 = new MyServiceNode("IDC1", "127.0.0.1", 8081);
+
+  @Test
+  public void testReleaseAfterRemove() {
+    ConsistentHashRouter<MyServiceNode> router = new ConsistentHashRouter<>();
+    router.addNodes(Arrays.asList(node1, node2), 100);
+
+    NodeLoad<MyServiceNode> load = acquire(router, node1);
+    assertEquals(1, router.getLoad(node1));
+
+    router.removeNode(node1);
+    assertEquals(0, router.getLoad(node1));
+    router.releaseNode(load);
+    assertEquals(0, load.get());
+
+    assertEquals(0, router.getTotalLoad());
+  }
+
+  @Test
+  public void testReleaseAfterReAdd() {
+    ConsistentHashRouter<MyServiceNode> router = new ConsistentHashRouter<>();
+    router.addNodes(Arrays.asList(node1, node2), 100);
+
+    NodeLoad<MyServiceNode> old = acquire(router, node1);
+    router.removeNode(node1);
+    assertEquals(1, router.getTotalLoad());
+    router.addNode(node1, 100);
+
+    NodeLoad<MyServiceNode> current = acquire(router, node1);
+    assertEquals(1, router.getLoad(node1));
+
+    // 释放移除前获取的负载，不影响重新加入的节点
+    router.releaseNode(old);
+    assertEquals(1, router.getLoad(node1));
+    router.releaseNode(current);
+    assertEquals(0, router.getLoad(node1));
+    assertEquals(0, router.getTotalLoad());
+  }
+
+  @Test
+  public void testAcquireOnRemovedSnapshot() {
+    ConsistentHashRouter<MyServiceNode> router = new ConsistentHashRouter<>();
+    router.addNodes(Arrays.asList(node1, node2), 100);
+
+    // 模拟在旧的快照上获取节点时，节点被并发移除
+    RingSnapshot<MyServiceNode> s = router.getSnapshot();
+    router.removeNode(node1);
+    NodeLoad<MyServiceNode> load = null;
+    for (int i = 0; i < s.size(); i++) {
+      if (s.nodeAt(i) == node1) {
+        load = s.loadAt(i);
+        load.acquire();
+        break;
+      }
+    }
+    assertNotNull(load);
+    assertEquals(1, router.getTotalLoad());
+    router.releaseNode(load);
+    assertEquals(0, router.getTotalLoad());
+
+    // 重新加入的节点使用新的负载
+    router.addNode(node1, 100);
+    assertEquals(0, router.getLoad(node1));
+  }
+
+  private static NodeLoad<MyServiceNode> acquire(ConsistentHashRouter<MyServiceNode> router, MyServiceNode node) {
+    for (int i = 0; ; i++) {
+      NodeLoad<MyServiceNode> load = router.acquireNode("key-" + i);
+      if (load.getNode() == node) {
+        return load;
+      }
+      router.releaseNode(load);
+    }
+  }
+}
@@ -5,7 +5,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.*;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -62,50 +61,41 @@ public abstract class BaseEventAdapter<E> implements EventAdapter<E> {
       }
     };
 
-    private static final Map<Class<?>, TypeParameterMatcher> CLASS_CACHE = new ConcurrentHashMap<>();
-    private static final Map<Class<?>, Map<String, TypeParameterMatcher>> PARAMETER_MATCHER_CACHE = new ConcurrentHashMap<>();
-
-    public static Map<Class<?>, TypeParameterMatcher> getClassCache() {
-      return CLASS_CACHE;
-    }
-
-    public static Map<Class<?>, Map<String, TypeParameterMatcher>> getParameterMatcherCache() {
-      return PARAMETER_MATCHER_CACHE;
-    }
-
-    public static TypeParameterMatcher get(final Class<?> parameterType) {
-      final Map<Class<?>, TypeParameterMatcher> getCache = getClassCache();
-
-      TypeParameterMatcher matcher = getCache.get(parameterType);
-      if (matcher == null) {
-        if (parameterType == Object.class) {
-          matcher = NOOP;
-        } else {
-          matcher = new ReflectiveMatcher(parameterType);
-        }
-        getCache.put(parameterType, matcher);
+    /**
+     * 参数类型 -> 匹配器
+     */
+    private static final ClassValue<TypeParameterMatcher> CLASS_CACHE = new ClassValue<TypeParameterMatcher>() {
+      @Override
+      protected TypeParameterMatcher computeValue(Class<?> type) {
+        return type == Object.class ? NOOP : new ReflectiveMatcher(type);
       }
+    };
+    /**
+     * 对象的类型 -> (泛型父类#类型参数名 -> 匹配器)
+     */
+    private static final ClassValue<Map<String, TypeParameterMatcher>> PARAMETER_MATCHER_CACHE =
+        new ClassValue<Map<String, TypeParameterMatcher>>() {
+          @Override
+          protected Map<String, TypeParameterMatcher> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>(2);
+          }
+        };
 
-      return matcher;
+    public static TypeParameterMatcher get(final Class<?> parameterType) {
+      return CLASS_CACHE.get(parameterType);
     }
 
     public static TypeParameterMatcher find(
         final Object object, final Class<?> parametrizedSuperclass, final String typeParamName) {
-
-      final Map<Class<?>, Map<String, TypeParameterMatcher>> findCache = getParameterMatcherCache();
       final Class<?> thisClass = object.getClass();
-
-      Map<String, TypeParameterMatcher> map = findCache.computeIfAbsent(thisClass, k -> new HashMap<>(2));
-      TypeParameterMatcher matcher = map.get(typeParamName);
-      if (matcher == null) {
-        matcher = get(find0(object, parametrizedSuperclass, typeParamName));
-        map.put(typeParamName, matcher);
-      }
-      return matcher;
+      final Map<String, TypeParameterMatcher> map = PARAMETER_MATCHER_CACHE.get(thisClass);
+      final String key = parametrizedSuperclass.getName() + '#' + typeParamName;
+      final TypeParameterMatcher matcher = map.get(key);
+      return matcher != null ? matcher
+          : map.computeIfAbsent(key, k -> get(find0(thisClass, parametrizedSuperclass, typeParamName)));
     }
 
-    private static Class<?> find0(final Object object, Class<?> parametrizedSuperclass, String typeParamName) {
-      final Class<?> thisClass = object.getClass();
+    private static Class<?> find0(final Class<?> thisClass, Class<?> parametrizedSuperclass, String typeParamName) {
       Class<?> currentClass = thisClass;
       for (;;) {
         if (currentClass.getSuperclass() == parametrizedSuperclass) {
@@ -179,16 +169,43 @@ public abstract class BaseEventAdapter<E> implements EventAdapter<E> {
 
     public abstract boolean match(Object msg);
 
+    /**
+     * 先比较消息的类型是否与参数类型相同；参数类型为 final 类时只需比较类型；
+     * 参数类型为接口时，按消息的类型缓存匹配结果，避免每次都遍历消息类型实现的接口
+     */
     private static final class ReflectiveMatcher extends TypeParameterMatcher {
       private final Class<?> type;
+      /**
+       * 参数类型为 final 类(数组除外)，只匹配相同的类型
+       */
+      private final boolean exact;
+      /**
+       * 消息的类型 -> 是否匹配，参数类型为接口时使用
+       */
+      private final ClassValue<Boolean> assignable;
 
       ReflectiveMatcher(Class<?> type) {
         this.type = type;
+        this.exact = Modifier.isFinal(type.getModifiers()) && !type.isArray();
+        this.assignable = type.isInterface() ? new ClassValue<Boolean>() {
+          @Override
+          protected Boolean computeValue(Class<?> msgType) {
+            return type.isAssignableFrom(msgType);
+          }
+        } : null;
       }
 
       @Override
       public boolean match(Object msg) {
-        return type.isInstance(msg);
+        if (msg == null) {
+          return false;
+        }
+        final Class<?> msgType = msg.getClass();
+        return msgType == type || (!exact && matchType0(msgType));
+      }
+
+      private boolean matchType0(Class<?> msgType) {
+        return assignable != null ? assignable.get(msgType) : type.isAssignableFrom(msgType);
       }
     }
 
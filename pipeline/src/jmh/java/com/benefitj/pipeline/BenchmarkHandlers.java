@@ -0,0 +1,65 @@
+package com.benefitj.pipeline;
+
+/**
+ * 基准测试使用的 PipelineHandler
+ */
+public class BenchmarkHandlers {
+
+  /**
+   * 传递消息
+   */
+  public static final Integer MSG = 1;
+
+  /**
+   * 创建 Pipeline，PipelineHandler 的名称为 h0、h1...
+   *
+   * @param count    PipelineHandler 的数量
+   * @param compiled 是否编译
+   * @return 返回 Pipeline
+   */
+  public static Pipeline pipeline(int count, boolean compiled) {
+    final Pipeline pipeline = new DefaultPipeline();
+    for (int i = 0; i < count; i++) {
+      pipeline.addLast("h" + i, new PassHandler());
+    }
+    return compiled ? pipeline.compile() : pipeline;
+  }
+
+  /**
+   * 创建一半的 PipelineHandler 不处理 {@link #MSG} 类型的 Pipeline
+   *
+   * @param count    PipelineHandler 的数量
+   * @param compiled 是否编译
+   * @return 返回 Pipeline
+   */
+  public static Pipeline mixedPipeline(int count, boolean compiled) {
+    final Pipeline pipeline = new DefaultPipeline();
+    for (int i = 0; i < count; i++) {
+      pipeline.addLast("h" + i, (i & 1) == 0 ? new PassHandler() : new StringHandler());
+    }
+    return compiled ? pipeline.compile() : pipeline;
+  }
+
+  /**
+   * 处理全部类型的消息，直接往后传递
+   */
+  public static class PassHandler extends InboundHandlerAdapter<Object> {
+
+    @Override
+    protected void process0(HandlerContext ctx, Object msg) {
+      ctx.fireNext(msg);
+    }
+  }
+
+  /**
+   * 只处理 String 类型的消息
+   */
+  public static class StringHandler extends InboundHandlerAdapter<String> {
+
+    @Override
+    protected void process0(HandlerContext ctx, String msg) {
+      ctx.fireNext(msg);
+    }
+  }
+
+}
@@ -0,0 +1,57 @@
+package com.benefitj.pipeline;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pipeline.fireNext 的吞吐量，分别使用 1/8 个线程，以及从中间的 PipelineHandler 开始传递(fireNext(baseName, msg))
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FireNextBenchmark {
+
+  @Param({"1", "10", "50"})
+  public int handlerCount;
+
+  @Param({"false", "true"})
+  public boolean compiled;
+
+  private Pipeline pipeline;
+  private String baseName;
+
+  @Setup
+  public void setup() {
+    pipeline = BenchmarkHandlers.pipeline(handlerCount, compiled);
+    baseName = "h" + (handlerCount / 2);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void fireNext1() {
+    pipeline.fireNext(BenchmarkHandlers.MSG);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void fireNext8() {
+    pipeline.fireNext(BenchmarkHandlers.MSG);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void fireNextNamed1() {
+    pipeline.fireNext(baseName, BenchmarkHandlers.MSG);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void fireNextNamed8() {
+    pipeline.fireNext(baseName, BenchmarkHandlers.MSG);
+  }
+
+}
@@ -0,0 +1,45 @@
+package com.benefitj.pipeline;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 传递消息的同时添加和移除 PipelineHandler：3 个线程调用 fireNext，1 个线程调用 addLast/remove
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class MembershipBenchmark {
+
+  @Param({"10", "50"})
+  public int handlerCount;
+
+  private Pipeline pipeline;
+  private PipelineHandler handler;
+
+  @Setup
+  public void setup() {
+    pipeline = BenchmarkHandlers.pipeline(handlerCount, false);
+    handler = new BenchmarkHandlers.PassHandler();
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(3)
+  public void fireNext() {
+    pipeline.fireNext(BenchmarkHandlers.MSG);
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(1)
+  public void addLastAndRemove() {
+    pipeline.addLast("extra", handler);
+    pipeline.remove("extra");
+  }
+
+}
@@ -0,0 +1,43 @@
+package com.benefitj.pipeline;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息类型匹配的开销：全部 PipelineHandler 都处理消息，和一半的 PipelineHandler 不处理该类型的消息(被跳过)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeMatchBenchmark {
+
+  @Param({"10", "50"})
+  public int handlerCount;
+
+  @Param({"false", "true"})
+  public boolean compiled;
+
+  private Pipeline matched;
+  private Pipeline mixed;
+
+  @Setup
+  public void setup() {
+    matched = BenchmarkHandlers.pipeline(handlerCount, compiled);
+    mixed = BenchmarkHandlers.mixedPipeline(handlerCount, compiled);
+  }
+
+  @Benchmark
+  public void allMatched() {
+    matched.fireNext(BenchmarkHandlers.MSG);
+  }
+
+  @Benchmark
+  public void halfSkipped() {
+    mixed.fireNext(BenchmarkHandlers.MSG);
+  }
+
+}
@@ -1,38 +1,75 @@
 package com.benefitj.pipeline;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * 抽象的 HandlerContext
  */
 public abstract class AbstractHandlerContext implements HandlerContext, PipelineHandler {
 
+  private static final Object[] EMPTY_ATTACHMENTS = new Object[0];
+
   private final String name;
   /**
-   * 前一个
+   * 前一个（传递消息时不加锁读取）
    */
-  private AbstractHandlerContext prev;
+  private volatile AbstractHandlerContext prev;
   /**
    * 当前的PipelineHandler
    */
   private PipelineHandler handler;
   /**
-   * 下一个
+   * 下一个（传递消息时不加锁读取）
+   */
+  private volatile AbstractHandlerContext next;
+  /**
+   * 处理消息的执行器，为 null 时在调用线程中处理
+   */
+  private final StageExecutor stage;
+  /**
+   * 调用统计，为 null 时不统计
+   */
+  private volatile HandlerMetrics metrics;
+  /**
+   * 消息类型 -> 往后传递时实际处理该类型消息的 HandlerContext
+   */
+  private volatile Map<Class<?>, AbstractHandlerContext> nextTargets = new ConcurrentHashMap<>();
+  /**
+   * 消息类型 -> 往前传递时实际处理该类型消息的 HandlerContext
    */
-  private AbstractHandlerContext next;
+  private volatile Map<Class<?>, AbstractHandlerContext> prevTargets = new ConcurrentHashMap<>();
+  /**
+   * 附加的对象，按 {@link AttachmentKey} 的下标保存（写入时复制，读取时不加锁）
+   */
+  private volatile Object[] attachments = EMPTY_ATTACHMENTS;
 
   public AbstractHandlerContext(String name) {
-    this.name = name;
+    this(name, null, null, null, null);
+  }
+
+  public AbstractHandlerContext(String name,
+                                AbstractHandlerContext prev,
+                                PipelineHandler handler,
+                                AbstractHandlerContext next) {
+    this(name, prev, handler, null, next);
   }
 
   public AbstractHandlerContext(String name,
                                 AbstractHandlerContext prev,
                                 PipelineHandler handler,
+                                StageExecutor stage,
                                 AbstractHandlerContext next) {
     this.name = name;
     this.prev = prev;
     this.next = next;
     this.handler = handler;
+    this.stage = stage;
   }
 
   /**
@@ -43,9 +80,11 @@ public abstract class AbstractHandlerContext implements HandlerContext, Pipeline
    */
   @Override
   public void processPrev(@Nonnull HandlerContext ctx, Object msg) {
-    final PipelineHandler handler = getHandler();
-    if (handler != null) {
-      handler.processPrev(this, msg);
+    final StageExecutor stage = this.stage;
+    if (stage != null) {
+      stage.submit(this, msg, StageExecutor.PREV);
+    } else {
+      invokePrev(msg);
     }
   }
 
@@ -57,12 +96,303 @@ public abstract class AbstractHandlerContext implements HandlerContext, Pipeline
    */
   @Override
   public void processNext(@Nonnull HandlerContext ctx, Object msg) {
+    final StageExecutor stage = this.stage;
+    if (stage != null) {
+      stage.submit(this, msg, StageExecutor.NEXT);
+    } else {
+      invokeNext(msg);
+    }
+  }
+
+  /**
+   * 在当前线程中处理上一条数据
+   *
+   * @param msg 消息
+   */
+  protected void invokePrev(Object msg) {
     final PipelineHandler handler = getHandler();
-    if (handler != null) {
+    if (handler == null) {
+      return;
+    }
+    final HandlerMetrics metrics = this.metrics;
+    if (metrics == null) {
+      handler.processPrev(this, msg);
+      return;
+    }
+    final long start = metrics.start();
+    boolean success = false;
+    try {
+      handler.processPrev(this, msg);
+      success = true;
+    } finally {
+      metrics.stop(start, success);
+    }
+  }
+
+  /**
+   * 在当前线程中处理下一条数据
+   *
+   * @param msg 消息
+   */
+  protected void invokeNext(Object msg) {
+    final PipelineHandler handler = getHandler();
+    if (handler == null) {
+      return;
+    }
+    final HandlerMetrics metrics = this.metrics;
+    if (metrics == null) {
       handler.processNext(this, msg);
+      return;
+    }
+    final long start = metrics.start();
+    boolean success = false;
+    try {
+      handler.processNext(this, msg);
+      success = true;
+    } finally {
+      metrics.stop(start, success);
+    }
+  }
+
+  /**
+   * 批量处理上一条数据，PipelineHandler 不支持批量处理时逐条处理
+   *
+   * @param msgs 消息
+   */
+  public void processPrevBatch(Collection<?> msgs) {
+    final StageExecutor stage = this.stage;
+    if (stage != null) {
+      stage.submit(this, msgs, StageExecutor.PREV_BATCH);
+    } else {
+      invokePrevBatch(msgs);
+    }
+  }
+
+  /**
+   * 批量处理下一条数据，PipelineHandler 不支持批量处理时逐条处理
+   *
+   * @param msgs 消息
+   */
+  public void processNextBatch(Collection<?> msgs) {
+    final StageExecutor stage = this.stage;
+    if (stage != null) {
+      stage.submit(this, msgs, StageExecutor.NEXT_BATCH);
+    } else {
+      invokeNextBatch(msgs);
     }
   }
 
+  /**
+   * 在当前线程中批量处理上一条数据
+   *
+   * @param msgs 消息
+   */
+  protected void invokePrevBatch(Collection<?> msgs) {
+    final PipelineHandler handler = getHandler();
+    if (!(handler instanceof BatchPipelineHandler)) {
+      for (Object msg : msgs) {
+        invokePrev(msg);
+      }
+      return;
+    }
+    final HandlerMetrics metrics = this.metrics;
+    if (metrics == null) {
+      ((BatchPipelineHandler) handler).processPrevBatch(this, msgs);
+      return;
+    }
+    final long start = metrics.start();
+    boolean success = false;
+    try {
+      ((BatchPipelineHandler) handler).processPrevBatch(this, msgs);
+      success = true;
+    } finally {
+      metrics.stop(start, success);
+    }
+  }
+
+  /**
+   * 在当前线程中批量处理下一条数据
+   *
+   * @param msgs 消息
+   */
+  protected void invokeNextBatch(Collection<?> msgs) {
+    final PipelineHandler handler = getHandler();
+    if (!(handler instanceof BatchPipelineHandler)) {
+      for (Object msg : msgs) {
+        invokeNext(msg);
+      }
+      return;
+    }
+    final HandlerMetrics metrics = this.metrics;
+    if (metrics == null) {
+      ((BatchPipelineHandler) handler).processNextBatch(this, msgs);
+      return;
+    }
+    final long start = metrics.start();
+    boolean success = false;
+    try {
+      ((BatchPipelineHandler) handler).processNextBatch(this, msgs);
+      success = true;
+    } finally {
+      metrics.stop(start, success);
+    }
+  }
+
+  /**
+   * 往后传递消息时是否可以跳过当前的 HandlerContext：PipelineHandler 不处理该类型的消息，并且在调用线程中处理
+   *
+   * @param msgType 消息的类型
+   * @return 返回是否可以跳过
+   */
+  public boolean canSkipNext(Class<?> msgType) {
+    final PipelineHandler handler = getHandler();
+    return stage == null
+        && handler instanceof UnboundHandlerAdapter
+        && ((UnboundHandlerAdapter<?>) handler).isTypeSkippable()
+        && !((UnboundHandlerAdapter<?>) handler).acceptNext(msgType);
+  }
+
+  /**
+   * 往前传递消息时是否可以跳过当前的 HandlerContext：PipelineHandler 不处理该类型的消息，并且在调用线程中处理
+   *
+   * @param msgType 消息的类型
+   * @return 返回是否可以跳过
+   */
+  public boolean canSkipPrev(Class<?> msgType) {
+    final PipelineHandler handler = getHandler();
+    return stage == null
+        && handler instanceof UnboundHandlerAdapter
+        && ((UnboundHandlerAdapter<?>) handler).isTypeSkippable()
+        && !((UnboundHandlerAdapter<?>) handler).acceptPrev(msgType);
+  }
+
+  /**
+   * 查找往后传递时实际处理消息的 HandlerContext，跳过不处理该类型消息的 HandlerContext，结果按消息类型缓存
+   *
+   * @param msg 消息
+   * @return 返回 HandlerContext，没有下一个时返回 null
+   */
+  public AbstractHandlerContext findNext(Object msg) {
+    // 先读取缓存再读取前后引用：缓存是在前后引用修改之后替换的，读到新的缓存时一定能读到新的前后引用，
+    // 读到旧的缓存时，按旧的前后引用找到的结果只会写入已被替换的旧缓存
+    final Map<Class<?>, AbstractHandlerContext> targets = this.nextTargets;
+    final AbstractHandlerContext next = this.next;
+    if (msg == null || next == null || !next.isSkippable()) {
+      return next;
+    }
+    final Class<?> type = msg.getClass();
+    AbstractHandlerContext target = targets.get(type);
+    if (target == null) {
+      target = next;
+      while (target.canSkipNext(type) && target.getNext() != null) {
+        target = target.getNext();
+      }
+      targets.put(type, target);
+    }
+    return target;
+  }
+
+  /**
+   * 查找往前传递时实际处理消息的 HandlerContext，跳过不处理该类型消息的 HandlerContext，结果按消息类型缓存
+   *
+   * @param msg 消息
+   * @return 返回 HandlerContext，没有上一个时返回 null
+   */
+  public AbstractHandlerContext findPrev(Object msg) {
+    // 先读取缓存再读取前后引用：缓存是在前后引用修改之后替换的，读到新的缓存时一定能读到新的前后引用，
+    // 读到旧的缓存时，按旧的前后引用找到的结果只会写入已被替换的旧缓存
+    final Map<Class<?>, AbstractHandlerContext> targets = this.prevTargets;
+    final AbstractHandlerContext prev = this.prev;
+    if (msg == null || prev == null || !prev.isSkippable()) {
+      return prev;
+    }
+    final Class<?> type = msg.getClass();
+    AbstractHandlerContext target = targets.get(type);
+    if (target == null) {
+      target = prev;
+      while (target.canSkipPrev(type) && target.getPrev() != null) {
+        target = target.getPrev();
+      }
+      targets.put(type, target);
+    }
+    return target;
+  }
+
+  /**
+   * 清空 {@link #findNext(Object)} 和 {@link #findPrev(Object)} 缓存的结果，HandlerContext 链改变后调用(必须在修改前后引用之后调用)
+   */
+  public void resetTargets() {
+    this.nextTargets = new ConcurrentHashMap<>();
+    this.prevTargets = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * 获取附加的对象
+   *
+   * @param key 键
+   * @param <T> 附加对象的类型
+   * @return 返回附加的对象，没有时返回 null
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public <T> T attachment(AttachmentKey<T> key) {
+    final Object[] a = this.attachments;
+    final int index = key.index();
+    return index < a.length ? (T) a[index] : null;
+  }
+
+  /**
+   * 获取附加的对象，没有时创建
+   *
+   * @param key     键
+   * @param factory 创建附加对象的函数
+   * @param <T>     附加对象的类型
+   * @return 返回附加的对象
+   */
+  public <T> T attachIfAbsent(AttachmentKey<T> key, Function<? super AbstractHandlerContext, ? extends T> factory) {
+    final T value = attachment(key);
+    return value != null ? value : attachIfAbsent0(key, factory);
+  }
+
+  private synchronized <T> T attachIfAbsent0(AttachmentKey<T> key,
+                                             Function<? super AbstractHandlerContext, ? extends T> factory) {
+    T value = attachment(key);
+    if (value == null) {
+      value = factory.apply(this);
+      attach(key, value);
+    }
+    return value;
+  }
+
+  /**
+   * 设置附加的对象
+   *
+   * @param key   键
+   * @param value 附加的对象，为 null 时移除
+   * @param <T>   附加对象的类型
+   * @return 返回之前附加的对象
+   */
+  @Nullable
+  public synchronized <T> T attach(AttachmentKey<T> key, @Nullable T value) {
+    final T old = attachment(key);
+    final Object[] a = this.attachments;
+    final int index = key.index();
+    final Object[] copy = Arrays.copyOf(a, Math.max(a.length, index + 1));
+    copy[index] = value;
+    this.attachments = copy;
+    return old;
+  }
+
+  /**
+   * @return 是否有可能被跳过
+   */
+  boolean isSkippable() {
+    final PipelineHandler handler = getHandler();
+    return stage == null
+        && handler instanceof UnboundHandlerAdapter
+        && ((UnboundHandlerAdapter<?>) handler).isTypeSkippable();
+  }
+
   public String getName() {
     return name;
   }
@@ -89,6 +419,24 @@ public abstract class AbstractHandlerContext implements HandlerContext, Pipeline
     this.handler = handler;
   }
 
+  /**
+   * @return 返回处理消息的执行器，为 null 时在调用线程中处理
+   */
+  public StageExecutor getStage() {
+    return stage;
+  }
+
+  /**
+   * @return 返回调用统计，为 null 时不统计
+   */
+  public HandlerMetrics getMetrics() {
+    return metrics;
+  }
+
+  public void setMetrics(HandlerMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   public AbstractHandlerContext getNext() {
     return next;
   }
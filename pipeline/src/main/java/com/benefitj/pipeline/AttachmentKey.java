@@ -0,0 +1,50 @@
+package com.benefitj.pipeline;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HandlerContext 附加对象的键
+ * <p>
+ * 每个键对应 {@link AbstractHandlerContext} 中的一个槽位，按下标读取，不需要查找；键的数量决定槽位数组的长度，应定义为静态常量
+ *
+ * @param <T> 附加对象的类型
+ */
+public final class AttachmentKey<T> {
+
+  private static final AtomicInteger INDEX_GENERATOR = new AtomicInteger(0);
+
+  /**
+   * 创建键
+   *
+   * @param name 名称
+   * @param <T>  附加对象的类型
+   * @return 返回新的键
+   */
+  public static <T> AttachmentKey<T> newKey(String name) {
+    return new AttachmentKey<>(name, INDEX_GENERATOR.getAndIncrement());
+  }
+
+  private final String name;
+  private final int index;
+
+  private AttachmentKey(String name, int index) {
+    this.name = name;
+    this.index = index;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return 槽位的下标
+   */
+  int index() {
+    return index;
+  }
+
+  @Override
+  public String toString() {
+    return "AttachmentKey(" + name + "#" + index + ")";
+  }
+}
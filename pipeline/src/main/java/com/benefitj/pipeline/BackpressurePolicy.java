@@ -0,0 +1,24 @@
+package com.benefitj.pipeline;
+
+/**
+ * 队列已满时的处理策略
+ */
+public enum BackpressurePolicy {
+
+  /**
+   * 阻塞调用线程，直到队列有空闲位置；
+   * 调用线程正在处理同一个 StageExecutor 的队列，或者正在处理的 StageExecutor 使用同一个 Executor 时不阻塞，
+   * 直接在调用线程中处理(与 {@link #CALLER_RUNS} 相同)，避免死锁
+   */
+  BLOCK,
+  /**
+   * 丢弃消息
+   */
+  DROP,
+  /**
+   * 在调用线程中直接处理；
+   * 此时 StageExecutor 的处理线程可能正在处理队列中更早的消息，PipelineHandler 会被并发调用，并且不保证消息的顺序
+   */
+  CALLER_RUNS,
+
+}
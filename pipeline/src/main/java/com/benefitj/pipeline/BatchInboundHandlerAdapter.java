@@ -0,0 +1,97 @@
+package com.benefitj.pipeline;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量处理消息的 PipelineHandler，只处理往后传递的消息
+ * <p>
+ * 批量传递的消息按连续的段处理，保持消息的顺序：连续的支持的消息一次交给 {@link #processBatch0(HandlerContext, List)} 处理，
+ * 连续的不支持的消息批量往后传递；单条传递的消息作为只有一条消息的批次处理
+ *
+ * @param <I>
+ */
+public abstract class BatchInboundHandlerAdapter<I> extends InboundHandlerAdapter<I> implements BatchPipelineHandler {
+
+  public BatchInboundHandlerAdapter() {
+    super();
+  }
+
+  public BatchInboundHandlerAdapter(Class<? extends I> inboundMessageType) {
+    super(inboundMessageType);
+  }
+
+  @Override
+  protected final void process0(HandlerContext ctx, I msg) {
+    processBatch0(ctx, Collections.singletonList(msg));
+  }
+
+  @Override
+  public final void processPrevBatch(@Nonnull HandlerContext ctx, Collection<?> msgs) {
+    ctx.firePrevBatch(msgs);
+  }
+
+  @Override
+  public final void processNextBatch(@Nonnull HandlerContext ctx, Collection<?> msgs) {
+    if (supportAll(msgs)) {
+      // 全部支持，不复制
+      @SuppressWarnings("unchecked")
+      List<I> all = msgs instanceof List ? (List<I>) msgs : new ArrayList<>((Collection<I>) msgs);
+      processBatch0(inboundCtx(ctx), all);
+      return;
+    }
+    // 按连续的段处理，保持消息的顺序：支持的一段交给 processBatch0，不支持的一段直接往后传递
+    final HandlerContext inboundCtx = inboundCtx(ctx);
+    List<I> supported = null;
+    List<Object> unsupported = null;
+    for (Object msg : msgs) {
+      if (support(msg)) {
+        if (unsupported != null) {
+          ctx.fireNextBatch(unsupported);
+          unsupported = null;
+        }
+        if (supported == null) {
+          supported = new ArrayList<>();
+        }
+        @SuppressWarnings("unchecked")
+        I imsg = (I) msg;
+        supported.add(imsg);
+      } else {
+        if (supported != null) {
+          processBatch0(inboundCtx, supported);
+          supported = null;
+        }
+        if (unsupported == null) {
+          unsupported = new ArrayList<>();
+        }
+        unsupported.add(msg);
+      }
+    }
+    if (supported != null) {
+      processBatch0(inboundCtx, supported);
+    }
+    if (unsupported != null) {
+      ctx.fireNextBatch(unsupported);
+    }
+  }
+
+  private boolean supportAll(Collection<?> msgs) {
+    for (Object msg : msgs) {
+      if (!support(msg)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 批量处理消息，处理完成后可调用 {@link HandlerContext#fireNextBatch(Collection)} 批量往后传递
+   *
+   * @param ctx  上下文
+   * @param msgs 消息
+   */
+  protected abstract void processBatch0(HandlerContext ctx, List<I> msgs);
+}
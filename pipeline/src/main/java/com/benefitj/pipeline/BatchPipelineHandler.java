@@ -0,0 +1,26 @@
+package com.benefitj.pipeline;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+
+/**
+ * 支持批量处理消息的Pipeline处理器
+ */
+public interface BatchPipelineHandler extends PipelineHandler {
+
+  /**
+   * 批量处理上一条数据
+   *
+   * @param ctx  上下文
+   * @param msgs 消息
+   */
+  void processPrevBatch(@Nonnull HandlerContext ctx, Collection<?> msgs);
+
+  /**
+   * 批量处理下一条数据
+   *
+   * @param ctx  上下文
+   * @param msgs 消息
+   */
+  void processNextBatch(@Nonnull HandlerContext ctx, Collection<?> msgs);
+}
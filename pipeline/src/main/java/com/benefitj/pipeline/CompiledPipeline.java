@@ -0,0 +1,399 @@
+package com.benefitj.pipeline;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * 编译后的Pipeline
+ * <p>
+ * PipelineHandler 固定不变，HandlerContext 按顺序保存在数组中，消息传递时直接按下标调用前/后一个 PipelineHandler，
+ * 不记录处理状态；前/后一个 PipelineHandler 可能被跳过时才按消息类型查找实际处理的 HandlerContext。不允许增删 PipelineHandler
+ */
+public final class CompiledPipeline implements Pipeline {
+
+  private final CompiledContext[] contexts;
+  /**
+   * 往后传递的起点，不包含 PipelineHandler
+   */
+  private final CompiledContext head;
+  /**
+   * 往前传递的起点，不包含 PipelineHandler
+   */
+  private final CompiledContext tail;
+  /**
+   * 名称 -> HandlerContext
+   */
+  private final Map<String, CompiledContext> names;
+  /**
+   * PipelineHandler(按引用比较) -> HandlerContext
+   */
+  private final Map<PipelineHandler, CompiledContext> handlers;
+  /**
+   * 是否统计 PipelineHandler 的调用，编译时确定
+   */
+  private final boolean metricsEnabled;
+
+  /**
+   * @param handlers 按顺序排列的 PipelineHandler，名称 -> PipelineHandler
+   */
+  public CompiledPipeline(Map<String, PipelineHandler> handlers) {
+    this(handlers.keySet().toArray(new String[0]),
+        handlers.values().toArray(new PipelineHandler[0]),
+        new StageExecutor[handlers.size()]);
+  }
+
+  /**
+   * @param names    PipelineHandler 的名称
+   * @param handlers 按顺序排列的 PipelineHandler
+   * @param stages   PipelineHandler 处理消息的执行器，为 null 时在调用线程中处理
+   */
+  CompiledPipeline(String[] names, PipelineHandler[] handlers, StageExecutor[] stages) {
+    this(names, handlers, stages, false);
+  }
+
+  /**
+   * @param names          PipelineHandler 的名称
+   * @param handlers       按顺序排列的 PipelineHandler
+   * @param stages         PipelineHandler 处理消息的执行器，为 null 时在调用线程中处理
+   * @param metricsEnabled 是否统计 PipelineHandler 的调用
+   */
+  CompiledPipeline(String[] names, PipelineHandler[] handlers, StageExecutor[] stages, boolean metricsEnabled) {
+    final CompiledContext[] contexts = new CompiledContext[handlers.length];
+    this.names = new HashMap<>(Math.max(contexts.length * 2, 2));
+    this.handlers = new IdentityHashMap<>(contexts.length);
+    for (int i = 0; i < contexts.length; i++) {
+      final HandlerMetrics metrics = metricsEnabled ? new HandlerMetrics(names[i]) : null;
+      final CompiledContext ctx = new CompiledContext(names[i], handlers[i], stages[i], metrics, i, contexts);
+      contexts[i] = ctx;
+      this.names.put(ctx.getName(), ctx);
+      this.handlers.putIfAbsent(ctx.getHandler(), ctx);
+    }
+    this.head = new CompiledContext("head", null, null, null, -1, contexts);
+    this.tail = new CompiledContext("tail", null, null, null, contexts.length, contexts);
+    for (int i = -1; i <= contexts.length; i++) {
+      final CompiledContext ctx = i < 0 ? head : i < contexts.length ? contexts[i] : tail;
+      ctx.setPrev(i > 0 ? contexts[i - 1] : null);
+      ctx.setNext(i < contexts.length - 1 ? contexts[i + 1] : null);
+      ctx.prevSkippable = i > 0 && contexts[i - 1].isSkippable();
+      ctx.nextSkippable = i < contexts.length - 1 && contexts[i + 1].isSkippable();
+    }
+    this.contexts = contexts;
+    this.metricsEnabled = metricsEnabled;
+    for (CompiledContext ctx : contexts) {
+      ctx.handler.handlerAdded(ctx);
+    }
+  }
+
+  @Override
+  public void fireNext(Object msg) {
+    head.fireNext(msg);
+  }
+
+  @Override
+  public void fireNext(String baseName, Object msg) {
+    AbstractHandlerContext ctx = names.get(baseName);
+    if (ctx != null && msg != null && ctx.canSkipNext(msg.getClass())) {
+      ctx = ctx.findNext(msg);
+    }
+    if (ctx != null) {
+      ctx.processNext(ctx, msg);
+    }
+  }
+
+  @Override
+  public void fireNextBatch(Collection<?> msgs) {
+    final CompiledContext[] ctxs = this.contexts;
+    if (ctxs.length > 0 && !msgs.isEmpty()) {
+      ctxs[0].processNextBatch(msgs);
+    }
+  }
+
+  @Override
+  public void firePrev(Object msg) {
+    tail.firePrev(msg);
+  }
+
+  @Override
+  public void firePrev(String baseName, Object msg) {
+    AbstractHandlerContext ctx = names.get(baseName);
+    if (ctx != null && msg != null && ctx.canSkipPrev(msg.getClass())) {
+      ctx = ctx.findPrev(msg);
+    }
+    if (ctx != null) {
+      ctx.processPrev(ctx, msg);
+    }
+  }
+
+  @Override
+  public void firePrevBatch(Collection<?> msgs) {
+    final CompiledContext[] ctxs = this.contexts;
+    if (ctxs.length > 0 && !msgs.isEmpty()) {
+      ctxs[ctxs.length - 1].processPrevBatch(msgs);
+    }
+  }
+
+  @Override
+  public int size() {
+    return contexts.length;
+  }
+
+  @Override
+  public boolean contains(String name) {
+    return names.containsKey(name);
+  }
+
+  @Override
+  public boolean contains(PipelineHandler handler) {
+    return handlers.containsKey(handler);
+  }
+
+  @Override
+  public Pipeline addFirst(String name, PipelineHandler handler) {
+    throw unsupported();
+  }
+
+  @Override
+  public Pipeline addLast(String name, PipelineHandler handler) {
+    throw unsupported();
+  }
+
+  @Override
+  public Pipeline addLast(String name, PipelineHandler handler, StageExecutor stage) {
+    throw unsupported();
+  }
+
+  @Override
+  public Pipeline addBefore(String baseName, String name, PipelineHandler handler) {
+    throw unsupported();
+  }
+
+  @Override
+  public Pipeline addAfter(String baseName, String name, PipelineHandler handler) {
+    throw unsupported();
+  }
+
+  @Override
+  public void remove(PipelineHandler handler) {
+    throw unsupported();
+  }
+
+  @Nullable
+  @Override
+  public PipelineHandler remove(String name) {
+    throw unsupported();
+  }
+
+  @Override
+  public PipelineHandler removeFirst() throws NoSuchElementException {
+    throw unsupported();
+  }
+
+  @Override
+  public PipelineHandler removeLast() throws NoSuchElementException {
+    throw unsupported();
+  }
+
+  @Override
+  public PipelineHandler first() {
+    return contexts.length > 0 ? contexts[0].handler : null;
+  }
+
+  @Override
+  public HandlerContext firstContext() {
+    return contexts.length > 0 ? contexts[0] : null;
+  }
+
+  @Override
+  public PipelineHandler last() {
+    return contexts.length > 0 ? contexts[contexts.length - 1].handler : null;
+  }
+
+  @Override
+  public HandlerContext lastContext() {
+    return contexts.length > 0 ? contexts[contexts.length - 1] : null;
+  }
+
+  @Override
+  public PipelineHandler get(String name) {
+    final CompiledContext ctx = names.get(name);
+    return ctx != null ? ctx.handler : null;
+  }
+
+  @Override
+  public HandlerContext context(PipelineHandler handler) {
+    return handlers.get(handler);
+  }
+
+  @Override
+  public HandlerContext context(String name) {
+    return names.get(name);
+  }
+
+  @Override
+  public List<String> names() {
+    final List<String> nameList = new ArrayList<>(contexts.length);
+    for (CompiledContext ctx : contexts) {
+      nameList.add(ctx.getName());
+    }
+    return nameList;
+  }
+
+  @Override
+  public Map<String, PipelineHandler> toMap() {
+    final Map<String, PipelineHandler> map = new LinkedHashMap<>(contexts.length);
+    for (CompiledContext ctx : contexts) {
+      map.put(ctx.getName(), ctx.handler);
+    }
+    return map;
+  }
+
+  @Override
+  public void clear() {
+    throw unsupported();
+  }
+
+  /**
+   * 编译后不允许修改
+   */
+  @Override
+  public void setMetricsEnabled(boolean enabled) {
+    if (enabled != metricsEnabled) {
+      throw unsupported();
+    }
+  }
+
+  @Override
+  public boolean isMetricsEnabled() {
+    return metricsEnabled;
+  }
+
+  @Override
+  public Map<String, HandlerMetrics.Snapshot> metrics() {
+    final Map<String, HandlerMetrics.Snapshot> map = new LinkedHashMap<>(contexts.length);
+    for (CompiledContext ctx : contexts) {
+      if (ctx.metrics != null) {
+        map.put(ctx.getName(), ctx.metrics.snapshot());
+      }
+    }
+    return map;
+  }
+
+  /**
+   * @return 返回自身
+   */
+  @Override
+  public Pipeline compile() {
+    return this;
+  }
+
+  private static UnsupportedOperationException unsupported() {
+    return new UnsupportedOperationException("编译后的Pipeline不允许修改!");
+  }
+
+  private final class CompiledContext extends AbstractHandlerContext {
+
+    final PipelineHandler handler;
+    final StageExecutor stage;
+    final HandlerMetrics metrics;
+    final int index;
+    final CompiledContext[] contexts;
+    /**
+     * 前/后一个 HandlerContext 是否有可能被跳过
+     */
+    boolean prevSkippable;
+    boolean nextSkippable;
+
+    CompiledContext(String name,
+                    PipelineHandler handler,
+                    StageExecutor stage,
+                    HandlerMetrics metrics,
+                    int index,
+                    CompiledContext[] contexts) {
+      super(name, null, handler, stage, null);
+      setMetrics(metrics);
+      this.handler = handler;
+      this.stage = stage;
+      this.metrics = metrics;
+      this.index = index;
+      this.contexts = contexts;
+    }
+
+    @Override
+    public Pipeline pipeline() {
+      return CompiledPipeline.this;
+    }
+
+    @Override
+    public void processPrev(@Nonnull HandlerContext ctx, Object msg) {
+      if (stage != null) {
+        stage.submit(this, msg, StageExecutor.PREV);
+      } else if (metrics != null) {
+        invokePrev(msg);
+      } else {
+        handler.processPrev(this, msg);
+      }
+    }
+
+    @Override
+    public void processNext(@Nonnull HandlerContext ctx, Object msg) {
+      if (stage != null) {
+        stage.submit(this, msg, StageExecutor.NEXT);
+      } else if (metrics != null) {
+        invokeNext(msg);
+      } else {
+        handler.processNext(this, msg);
+      }
+    }
+
+    @Override
+    public void firePrev(Object msg) {
+      final int i = index - 1;
+      if (i >= 0) {
+        final AbstractHandlerContext prevCtx = prevSkippable ? findPrev(msg) : contexts[i];
+        prevCtx.processPrev(prevCtx, msg);
+      }
+    }
+
+    @Override
+    public void fireNext(Object msg) {
+      final int i = index + 1;
+      if (i < contexts.length) {
+        final AbstractHandlerContext nextCtx = nextSkippable ? findNext(msg) : contexts[i];
+        nextCtx.processNext(nextCtx, msg);
+      }
+    }
+
+    @Override
+    public void firePrevBatch(Collection<?> msgs) {
+      final int i = index - 1;
+      if (i >= 0) {
+        contexts[i].processPrevBatch(msgs);
+      }
+    }
+
+    @Override
+    public void fireNextBatch(Collection<?> msgs) {
+      final int i = index + 1;
+      if (i < contexts.length) {
+        contexts[i].processNextBatch(msgs);
+      }
+    }
+
+    /**
+     * 从第一个开始往后传递时，当前及之前的 PipelineHandler 都已处理过消息，直接传给下一个
+     */
+    @Override
+    public void fireHeadNext(Object msg) {
+      fireNext(msg);
+    }
+
+    /**
+     * 从最后一个开始往前传递时，当前及之后的 PipelineHandler 都已处理过消息，直接传给上一个
+     */
+    @Override
+    public void fireTailPrev(Object msg) {
+      firePrev(msg);
+    }
+  }
+}
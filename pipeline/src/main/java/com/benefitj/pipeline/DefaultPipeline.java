@@ -1,34 +1,42 @@
 package com.benefitj.pipeline;
 
-import com.benefitj.core.local.LocalCacheFactory;
-import com.benefitj.core.local.LocalMapCache;
-
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * 默认的Pipeline实现
+ * <p>
+ * 增删 PipelineHandler 时加锁，修改完成后发布不可变的 HandlerContext 数组及名称、Handler 的索引；
+ * 传递消息和查找 HandlerContext 只读取已发布的数据，不加锁
  */
 public class DefaultPipeline implements Pipeline {
 
+  private static final AbstractHandlerContext[] EMPTY = new AbstractHandlerContext[0];
+  private static final Chain EMPTY_CHAIN = new Chain(EMPTY);
+
   private final AbstractHandlerContext head = new DefaultHandlerContext("head", null, null, null);
   private final AbstractHandlerContext tail = new DefaultHandlerContext("tail", null, null, null);
 
-  private final AtomicInteger counter = new AtomicInteger(0);
-
-  private final AtomicReference<Thread> sign = new AtomicReference<>();
   /**
-   * 本地线程调用次数统计
+   * 增删 PipelineHandler 时的锁
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+  /**
+   * 已发布的 HandlerContext 链
+   */
+  private volatile Chain chain = EMPTY_CHAIN;
+  /**
+   * 是否统计 PipelineHandler 的调用
    */
-  private final ThreadLocal<AtomicInteger> localCount = ThreadLocal.withInitial(AtomicInteger::new);
+  private volatile boolean metricsEnabled = false;
 
-  private final Set<String> nameCaches = Collections.synchronizedSet(new HashSet<>());
   private final Map<Class<?>, AtomicInteger> nameGenerator = new ConcurrentHashMap<>();
 
   public DefaultPipeline() {
@@ -41,27 +49,39 @@ public class DefaultPipeline implements Pipeline {
   }
 
   /**
-   * 加锁
+   * 加锁（可重入），只用于增删 PipelineHandler
    */
   protected DefaultPipeline lock(final Runnable r) {
-    final Thread current = Thread.currentThread();
-    while (true) {
-      if ((sign.get() == current) || sign.compareAndSet(null, current)) {
-        final AtomicInteger c = localCount.get();
-        try {
-          c.incrementAndGet();
-          r.run();
-          break;
-        } finally {
-          if (c.decrementAndGet() < 1) {
-            sign.set(null);
-          }
-        }
-      }
+    lock.lock();
+    try {
+      r.run();
+    } finally {
+      lock.unlock();
     }
     return self();
   }
 
+  /**
+   * 发布当前的 HandlerContext 链（需在锁内调用）
+   */
+  protected void publish() {
+    final List<AbstractHandlerContext> list = new ArrayList<>(chain.contexts.length + 1);
+    for (AbstractHandlerContext ctx = head.getNext(); ctx != null && ctx != tail; ctx = ctx.getNext()) {
+      list.add(ctx);
+      ctx.resetTargets();
+    }
+    head.resetTargets();
+    tail.resetTargets();
+    this.chain = list.isEmpty() ? EMPTY_CHAIN : new Chain(list.toArray(EMPTY));
+  }
+
+  /**
+   * @return 返回已发布的 HandlerContext，不包含 head 和 tail
+   */
+  protected AbstractHandlerContext[] contexts() {
+    return chain.contexts;
+  }
+
   /**
    * 创建新的 HandlerContext
    *
@@ -75,8 +95,26 @@ public class DefaultPipeline implements Pipeline {
                                           AbstractHandlerContext prev,
                                           PipelineHandler handler,
                                           AbstractHandlerContext next) {
+    return newCtx(name, prev, handler, null, next);
+  }
+
+  /**
+   * 创建新的 HandlerContext
+   *
+   * @param name    PipelineHandler名称
+   * @param prev    前一个 HandlerContext
+   * @param handler PipelineHandler名称
+   * @param stage   处理消息的执行器，为 null 时在调用线程中处理
+   * @param next    后一个 HandlerContext
+   * @return 返回 HandlerContext
+   */
+  protected AbstractHandlerContext newCtx(String name,
+                                          AbstractHandlerContext prev,
+                                          PipelineHandler handler,
+                                          @Nullable StageExecutor stage,
+                                          AbstractHandlerContext next) {
     Class<?> handlerClass = handler != null ? handler.getClass() : DefaultHandlerContext.class;
-    if (name != null && nameCaches.contains(name)) {
+    if (name != null && chain.names.containsKey(name)) {
       throw new IllegalStateException("已经包含名称为\"" + name + "\"的Handler");
     }
     if (name == null) {
@@ -86,8 +124,30 @@ public class DefaultPipeline implements Pipeline {
       String thread = Thread.currentThread().getName();
       name = String.format("%s-%s-%d", thread, simpleName, generator.incrementAndGet());
     }
-    nameCaches.add(name);
-    return new DefaultHandlerContext(name, prev, handler, next);
+    final AbstractHandlerContext ctx = new DefaultHandlerContext(name, prev, handler, stage, next);
+    if (metricsEnabled) {
+      ctx.setMetrics(new HandlerMetrics(name));
+    }
+    if (handler != null) {
+      handler.handlerAdded(ctx);
+    }
+    return ctx;
+  }
+
+  /**
+   * 添加 PipelineHandler
+   *
+   * @param name    PipelineHandler的名称
+   * @param prevCtx 前一个上下文对象
+   * @param handler 当前的 PipelineHandler
+   * @param nextCtx 后一个上下文对象
+   * @return 返回Pipeline对象
+   */
+  protected Pipeline addCtx0(@Nullable String name,
+                             @Nonnull AbstractHandlerContext prevCtx,
+                             @Nonnull PipelineHandler handler,
+                             @Nonnull AbstractHandlerContext nextCtx) {
+    return addCtx0(name, prevCtx, handler, null, nextCtx);
   }
 
   /**
@@ -96,18 +156,20 @@ public class DefaultPipeline implements Pipeline {
    * @param name    PipelineHandler的名称
    * @param prevCtx 前一个上下文对象
    * @param handler 当前的 PipelineHandler
+   * @param stage   处理消息的执行器，为 null 时在调用线程中处理
    * @param nextCtx 后一个上下文对象
    * @return 返回Pipeline对象
    */
   protected Pipeline addCtx0(@Nullable String name,
                              @Nonnull AbstractHandlerContext prevCtx,
                              @Nonnull PipelineHandler handler,
+                             @Nullable StageExecutor stage,
                              @Nonnull AbstractHandlerContext nextCtx) {
     return lock(() -> {
-      AbstractHandlerContext ctx = newCtx(name, prevCtx, handler, nextCtx);
+      AbstractHandlerContext ctx = newCtx(name, prevCtx, handler, stage, nextCtx);
       prevCtx.setNext(ctx);
       nextCtx.setPrev(ctx);
-      counter.incrementAndGet();
+      publish();
     });
   }
 
@@ -123,11 +185,10 @@ public class DefaultPipeline implements Pipeline {
                                 @Nonnull AbstractHandlerContext ctx,
                                 @Nonnull AbstractHandlerContext nextCtx) {
     return lock(() -> {
-      prevCtx.setNext(ctx);
-      nextCtx.setPrev(ctx);
-      ctx.setPrev(null);
-      ctx.setNext(null);
-      counter.decrementAndGet();
+      // 保留被移除的 HandlerContext 的前后引用，正在传递的消息可以继续往下传递
+      prevCtx.setNext(nextCtx);
+      nextCtx.setPrev(prevCtx);
+      publish();
     });
   }
 
@@ -138,11 +199,25 @@ public class DefaultPipeline implements Pipeline {
    * @return 返回 HandlerContext 对象
    */
   protected AbstractHandlerContext removeCtx0(Predicate<AbstractHandlerContext> test) {
-    final AbstractHandlerContext ctx = getCtx0(test);
-    if (ctx != null) {
-      removeCtx0(ctx.getPrev(), ctx, ctx.getNext());
-    }
-    return ctx;
+    return removeCtx0(() -> getCtx0(test));
+  }
+
+  /**
+   * 移除 PipelineHandler
+   *
+   * @param finder 在锁内查找需要移除的 HandlerContext
+   * @return 返回 HandlerContext 对象
+   */
+  protected AbstractHandlerContext removeCtx0(Supplier<AbstractHandlerContext> finder) {
+    final AbstractHandlerContext[] ctxs = new AbstractHandlerContext[1];
+    lock(() -> {
+      final AbstractHandlerContext ctx = finder.get();
+      if (ctx != null) {
+        removeCtx0(ctx.getPrev(), ctx, ctx.getNext());
+      }
+      ctxs[0] = ctx;
+    });
+    return ctxs[0];
   }
 
   /**
@@ -150,8 +225,8 @@ public class DefaultPipeline implements Pipeline {
    * @return 返回第一个 HandlerContext
    */
   protected AbstractHandlerContext firstCtx0(boolean canHead) {
-    final AbstractHandlerContext ctx = head.getNext();
-    return (ctx != tail && ctx != null) ? ctx : canHead ? head : null;
+    final AbstractHandlerContext[] ctxs = this.chain.contexts;
+    return ctxs.length > 0 ? ctxs[0] : canHead ? head : null;
   }
 
   /**
@@ -159,8 +234,8 @@ public class DefaultPipeline implements Pipeline {
    * @return 返回最后一个 HandlerContext
    */
   protected AbstractHandlerContext lastCtx0(boolean canTail) {
-    final AbstractHandlerContext ctx = tail.getPrev();
-    return (ctx != head && ctx != null) ? ctx : canTail ? tail : null;
+    final AbstractHandlerContext[] ctxs = this.chain.contexts;
+    return ctxs.length > 0 ? ctxs[ctxs.length - 1] : canTail ? tail : null;
   }
 
   /**
@@ -171,15 +246,12 @@ public class DefaultPipeline implements Pipeline {
    */
   @Nullable
   protected AbstractHandlerContext getCtx0(Predicate<AbstractHandlerContext> filter) {
-    final AbstractHandlerContext[] ctxs = new AbstractHandlerContext[1];
-    foreachDuplex(ctx -> {
+    for (AbstractHandlerContext ctx : this.chain.contexts) {
       if (filter.test(ctx)) {
-        ctxs[0] = ctx;
-        return true;
+        return ctx;
       }
-      return false;
-    });
-    return ctxs[0];
+    }
+    return null;
   }
 
   /**
@@ -201,21 +273,11 @@ public class DefaultPipeline implements Pipeline {
    * @param test 过滤器
    */
   protected void foreachSimplex(Predicate<AbstractHandlerContext> test) {
-    lock(() -> {
-      final int size = size();
-      int count = 0;
-      AbstractHandlerContext nextCtx = firstCtx0(false);
-      while (nextCtx != null && count < size) {
-        if (test.test(nextCtx)) {
-          break;
-        }
-        nextCtx = nextCtx.getNext();
-        if ((nextCtx == tail)) {
-          break;
-        }
-        count++;
+    for (AbstractHandlerContext ctx : this.chain.contexts) {
+      if (test.test(ctx)) {
+        break;
       }
-    });
+    }
   }
 
   /**
@@ -224,30 +286,15 @@ public class DefaultPipeline implements Pipeline {
    * @param test 过滤器
    */
   protected void foreachDuplex(Predicate<AbstractHandlerContext> test) {
-    lock(() -> {
-      final int size = size();
-      int count = 0;
-      AbstractHandlerContext frontCtx = firstCtx0(false);
-      AbstractHandlerContext backCtx = lastCtx0(false);
-      while (frontCtx != null && backCtx != null && count < size) {
-        if (test.test(frontCtx)) {
-          break;
-        }
-
-        if (test.test(backCtx)) {
-          break;
-        }
-
-        frontCtx = frontCtx.getNext();
-        backCtx = backCtx.getPrev();
-
-        count++;
-
-        if ((frontCtx == backCtx) || (frontCtx == tail) || (backCtx == head)) {
-          break;
-        }
+    final AbstractHandlerContext[] ctxs = this.chain.contexts;
+    for (int front = 0, back = ctxs.length - 1; front <= back; front++, back--) {
+      if (test.test(ctxs[front])) {
+        break;
       }
-    });
+      if (front != back && test.test(ctxs[back])) {
+        break;
+      }
+    }
   }
 
   /**
@@ -258,7 +305,7 @@ public class DefaultPipeline implements Pipeline {
    */
   @Nullable
   protected AbstractHandlerContext getCtx(@Nonnull PipelineHandler handler) {
-    return getCtx0(ctx -> handler.equals(ctx.getHandler()));
+    return chain.handlers.get(handler);
   }
 
   /**
@@ -269,7 +316,7 @@ public class DefaultPipeline implements Pipeline {
    */
   @Nullable
   protected AbstractHandlerContext getCtx(@Nonnull String name) {
-    return getCtx0(ctx -> name.equals(ctx.getName()));
+    return chain.names.get(name);
   }
 
   /**
@@ -279,7 +326,7 @@ public class DefaultPipeline implements Pipeline {
    */
   @Override
   public void fireNext(Object msg) {
-    final AbstractHandlerContext ctx = firstCtx0(true);
+    final AbstractHandlerContext ctx = head.findNext(msg);
     if (ctx != null) {
       ctx.processNext(ctx, msg);
     }
@@ -288,11 +335,22 @@ public class DefaultPipeline implements Pipeline {
   @Override
   public void fireNext(String baseName, Object msg) {
     AbstractHandlerContext ctx = getCtx(baseName);
+    if (ctx != null && msg != null && ctx.canSkipNext(msg.getClass())) {
+      ctx = ctx.findNext(msg);
+    }
     if (ctx != null) {
       ctx.processNext(ctx, msg);
     }
   }
 
+  @Override
+  public void fireNextBatch(Collection<?> msgs) {
+    final AbstractHandlerContext ctx = firstCtx0(true);
+    if (ctx != null && !msgs.isEmpty()) {
+      ctx.processNextBatch(msgs);
+    }
+  }
+
   /**
    * 从后往前传递消息
    *
@@ -300,7 +358,7 @@ public class DefaultPipeline implements Pipeline {
    */
   @Override
   public void firePrev(Object msg) {
-    final AbstractHandlerContext ctx = lastCtx0(true);
+    final AbstractHandlerContext ctx = tail.findPrev(msg);
     if (ctx != null) {
       ctx.processPrev(ctx, msg);
     }
@@ -309,17 +367,28 @@ public class DefaultPipeline implements Pipeline {
   @Override
   public void firePrev(String baseName, Object msg) {
     AbstractHandlerContext ctx = getCtx(baseName);
+    if (ctx != null && msg != null && ctx.canSkipPrev(msg.getClass())) {
+      ctx = ctx.findPrev(msg);
+    }
     if (ctx != null) {
       ctx.processPrev(ctx, msg);
     }
   }
 
+  @Override
+  public void firePrevBatch(Collection<?> msgs) {
+    final AbstractHandlerContext ctx = lastCtx0(true);
+    if (ctx != null && !msgs.isEmpty()) {
+      ctx.processPrevBatch(msgs);
+    }
+  }
+
   /**
    * @return 获取Pipeline中Handler的个数
    */
   @Override
   public int size() {
-    return counter.get();
+    return chain.contexts.length;
   }
 
   /**
@@ -353,7 +422,7 @@ public class DefaultPipeline implements Pipeline {
    */
   @Override
   public Pipeline addFirst(String name, PipelineHandler handler) {
-    return addCtx0(name, head, handler, head.getNext());
+    return lock(() -> addCtx0(name, head, handler, head.getNext()));
   }
 
   /**
@@ -365,7 +434,20 @@ public class DefaultPipeline implements Pipeline {
    */
   @Override
   public Pipeline addLast(String name, PipelineHandler handler) {
-    return addCtx0(name, tail.getPrev(), handler, tail);
+    return lock(() -> addCtx0(name, tail.getPrev(), handler, tail));
+  }
+
+  /**
+   * 在Pipeline尾部添加一个 PipelineHandler，消息交给 StageExecutor 处理
+   *
+   * @param name    当前PipelineHandler的名称
+   * @param handler 当前PipelineHandler
+   * @param stage   处理消息的执行器
+   * @return 返回Pipeline
+   */
+  @Override
+  public Pipeline addLast(String name, PipelineHandler handler, StageExecutor stage) {
+    return lock(() -> addCtx0(name, tail.getPrev(), handler, stage, tail));
   }
 
   /**
@@ -378,11 +460,13 @@ public class DefaultPipeline implements Pipeline {
    */
   @Override
   public Pipeline addBefore(String baseName, String name, PipelineHandler handler) {
-    final AbstractHandlerContext baseCtx = getCtx(baseName);
-    if (baseCtx == null) {
-      throw new NoSuchElementException("baseName = \"" + baseName + "\"");
-    }
-    return addCtx0(name, baseCtx.getPrev(), handler, baseCtx);
+    return lock(() -> {
+      final AbstractHandlerContext baseCtx = getCtx(baseName);
+      if (baseCtx == null) {
+        throw new NoSuchElementException("baseName = \"" + baseName + "\"");
+      }
+      addCtx0(name, baseCtx.getPrev(), handler, baseCtx);
+    });
   }
 
   /**
@@ -395,11 +479,13 @@ public class DefaultPipeline implements Pipeline {
    */
   @Override
   public Pipeline addAfter(String baseName, String name, PipelineHandler handler) {
-    final AbstractHandlerContext baseCtx = getCtx(baseName);
-    if (baseCtx == null) {
-      throw new NoSuchElementException("baseName: " + baseName);
-    }
-    return addCtx0(name, baseCtx, handler, baseCtx.getNext());
+    return lock(() -> {
+      final AbstractHandlerContext baseCtx = getCtx(baseName);
+      if (baseCtx == null) {
+        throw new NoSuchElementException("baseName: " + baseName);
+      }
+      addCtx0(name, baseCtx, handler, baseCtx.getNext());
+    });
   }
 
   /**
@@ -409,7 +495,7 @@ public class DefaultPipeline implements Pipeline {
    */
   @Override
   public void remove(@Nonnull PipelineHandler handler) {
-    removeCtx0(ctx -> handler.equals(ctx.getHandler()));
+    removeCtx0(() -> getCtx(handler));
   }
 
   /**
@@ -421,7 +507,8 @@ public class DefaultPipeline implements Pipeline {
   @Nullable
   @Override
   public PipelineHandler remove(@Nonnull final String name) {
-    return removeCtx0(ctx -> name.equals(ctx.getName()));
+    final AbstractHandlerContext ctx = removeCtx0(() -> getCtx(name));
+    return ctx != null ? ctx.getHandler() : null;
   }
 
   /**
@@ -432,12 +519,8 @@ public class DefaultPipeline implements Pipeline {
   @Nullable
   @Override
   public PipelineHandler removeFirst() {
-    final AbstractHandlerContext ctx = (AbstractHandlerContext) firstContext();
-    if (ctx != null) {
-      removeCtx0(ctx.getPrev(), ctx, ctx.getNext());
-      return ctx.getHandler();
-    }
-    return null;
+    final AbstractHandlerContext ctx = removeCtx0(() -> (AbstractHandlerContext) firstContext());
+    return ctx != null ? ctx.getHandler() : null;
   }
 
   /**
@@ -449,12 +532,8 @@ public class DefaultPipeline implements Pipeline {
   @Nullable
   @Override
   public PipelineHandler removeLast() {
-    final AbstractHandlerContext ctx = (AbstractHandlerContext) lastContext();
-    if (ctx != null) {
-      removeCtx0(ctx.getPrev(), ctx, ctx.getNext());
-      return ctx.getHandler();
-    }
-    return null;
+    final AbstractHandlerContext ctx = removeCtx0(() -> (AbstractHandlerContext) lastContext());
+    return ctx != null ? ctx.getHandler() : null;
   }
 
   /**
@@ -577,15 +656,91 @@ public class DefaultPipeline implements Pipeline {
       }
       head.setNext(tail);
       tail.setPrev(head);
-      counter.set(0);
+      publish();
+    });
+  }
+
+  /**
+   * 按当前的 PipelineHandler 编译出固定的 Pipeline
+   *
+   * @return 返回编译后的 Pipeline
+   */
+  @Override
+  public Pipeline compile() {
+    final AbstractHandlerContext[] ctxs = contexts();
+    final String[] names = new String[ctxs.length];
+    final PipelineHandler[] handlers = new PipelineHandler[ctxs.length];
+    final StageExecutor[] stages = new StageExecutor[ctxs.length];
+    for (int i = 0; i < ctxs.length; i++) {
+      names[i] = ctxs[i].getName();
+      handlers[i] = ctxs[i].getHandler();
+      stages[i] = ctxs[i].getStage();
+    }
+    return new CompiledPipeline(names, handlers, stages, metricsEnabled);
+  }
+
+  /**
+   * 开启或关闭 PipelineHandler 的调用统计，重新开启时清空之前的统计
+   *
+   * @param enabled 是否开启
+   */
+  @Override
+  public void setMetricsEnabled(boolean enabled) {
+    lock(() -> {
+      if (this.metricsEnabled != enabled) {
+        this.metricsEnabled = enabled;
+        for (AbstractHandlerContext ctx : contexts()) {
+          ctx.setMetrics(enabled ? new HandlerMetrics(ctx.getName()) : null);
+        }
+      }
     });
   }
 
+  @Override
+  public boolean isMetricsEnabled() {
+    return metricsEnabled;
+  }
+
+  @Override
+  public Map<String, HandlerMetrics.Snapshot> metrics() {
+    final AbstractHandlerContext[] ctxs = contexts();
+    final Map<String, HandlerMetrics.Snapshot> map = new LinkedHashMap<>(ctxs.length);
+    for (AbstractHandlerContext ctx : ctxs) {
+      final HandlerMetrics metrics = ctx.getMetrics();
+      if (metrics != null) {
+        map.put(ctx.getName(), metrics.snapshot());
+      }
+    }
+    return map;
+  }
+
   /**
-   * 缓存处理状态
+   * 已发布的 HandlerContext 链及索引，不可变
    */
-  private final LocalMapCache<String, Thread> prevHandleState = LocalCacheFactory.newConcurrentHashMapCache();
-  private final LocalMapCache<String, Thread> nextHandleState = LocalCacheFactory.newConcurrentHashMapCache();
+  private static final class Chain {
+    /**
+     * HandlerContext，不包含 head 和 tail
+     */
+    final AbstractHandlerContext[] contexts;
+    /**
+     * 名称 -> HandlerContext
+     */
+    final Map<String, AbstractHandlerContext> names;
+    /**
+     * PipelineHandler(按引用比较) -> HandlerContext
+     */
+    final Map<PipelineHandler, AbstractHandlerContext> handlers;
+
+    Chain(AbstractHandlerContext[] contexts) {
+      this.contexts = contexts;
+      this.names = new HashMap<>(Math.max(contexts.length * 2, 2));
+      this.handlers = new IdentityHashMap<>(contexts.length);
+      for (AbstractHandlerContext ctx : contexts) {
+        this.names.put(ctx.getName(), ctx);
+        this.handlers.putIfAbsent(ctx.getHandler(), ctx);
+      }
+    }
+  }
 
   private final class DefaultHandlerContext extends AbstractHandlerContext {
 
@@ -597,6 +752,15 @@ public class DefaultPipeline implements Pipeline {
       super(name, prev, handler, next);
     }
 
+    DefaultHandlerContext(
+        String name,
+        AbstractHandlerContext prev,
+        PipelineHandler handler,
+        StageExecutor stage,
+        AbstractHandlerContext next) {
+      super(name, prev, handler, stage, next);
+    }
+
     /**
      * @return 获取Pipeline对象
      */
@@ -612,22 +776,9 @@ public class DefaultPipeline implements Pipeline {
      */
     @Override
     public void firePrev(Object msg) {
-      final String name = getName();
-      try {
-        final Thread state = prevHandleState.get(name);
-        final AbstractHandlerContext prevCtx = getPrev();
-        if (prevCtx != null) {
-          if (state == null) {
-            // 当前处理器处理
-            prevHandleState.put(name, Thread.currentThread());
-            prevCtx.processPrev(prevCtx, msg);
-          } else {
-            // 继续传递消息
-            prevCtx.firePrev(msg);
-          }
-        }
-      } finally {
-        prevHandleState.remove(name);
+      final AbstractHandlerContext prevCtx = findPrev(msg);
+      if (prevCtx != null) {
+        prevCtx.processPrev(prevCtx, msg);
       }
     }
 
@@ -638,22 +789,35 @@ public class DefaultPipeline implements Pipeline {
      */
     @Override
     public void fireNext(Object msg) {
-      final String name = getName();
-      try {
-        final AbstractHandlerContext nextCtx = getNext();
-        if (nextCtx != null) {
-          final Thread state = nextHandleState.get(name);
-          if (state == null) {
-            // 当前处理器处理
-            nextHandleState.put(name, Thread.currentThread());
-            nextCtx.processNext(nextCtx, msg);
-          } else {
-            // 继续传递消息
-            nextCtx.fireNext(msg);
-          }
-        }
-      } finally {
-        nextHandleState.remove(name);
+      final AbstractHandlerContext nextCtx = findNext(msg);
+      if (nextCtx != null) {
+        nextCtx.processNext(nextCtx, msg);
+      }
+    }
+
+    /**
+     * 往上一个处理器批量传递消息
+     *
+     * @param msgs 消息
+     */
+    @Override
+    public void firePrevBatch(Collection<?> msgs) {
+      final AbstractHandlerContext prevCtx = getPrev();
+      if (prevCtx != null) {
+        prevCtx.processPrevBatch(msgs);
+      }
+    }
+
+    /**
+     * 往下一个处理器批量传递消息
+     *
+     * @param msgs 消息
+     */
+    @Override
+    public void fireNextBatch(Collection<?> msgs) {
+      final AbstractHandlerContext nextCtx = getNext();
+      if (nextCtx != null) {
+        nextCtx.processNextBatch(msgs);
       }
     }
   }
@@ -0,0 +1,107 @@
+package com.benefitj.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 并行分发的 PipelineHandler
+ * <p>
+ * 把消息同时交给多个子 Pipeline 处理(例如分别补充不同的信息)，全部处理完成后再往后传递，
+ * 总耗时接近最慢的子 Pipeline 而不是全部子 Pipeline 之和。第一个子 Pipeline 在调用线程中处理，其余的交给 Executor；
+ * 子 Pipeline 抛出异常或超时时抛出异常，消息不会往后传递，超时后仍在执行的子 Pipeline 不会被中断
+ *
+ * @param <I>
+ */
+public class FanOutHandler<I> extends InboundHandlerAdapter<I> {
+
+  private final List<Pipeline> pipelines;
+  private final Executor executor;
+  private final long timeoutNanos;
+
+  /**
+   * @param messageType 消息类型
+   * @param pipelines   子 Pipeline
+   * @param timeout     等待全部子 Pipeline 处理完成的超时时长
+   * @param unit        时间单位
+   */
+  public FanOutHandler(Class<? extends I> messageType, Collection<? extends Pipeline> pipelines, long timeout, TimeUnit unit) {
+    this(messageType, pipelines, null, timeout, unit);
+  }
+
+  /**
+   * @param messageType 消息类型
+   * @param pipelines   子 Pipeline
+   * @param executor    执行器，为 null 时使用 {@link ForkJoinPool#commonPool()}
+   * @param timeout     等待全部子 Pipeline 处理完成的超时时长
+   * @param unit        时间单位
+   */
+  public FanOutHandler(Class<? extends I> messageType,
+                       Collection<? extends Pipeline> pipelines,
+                       Executor executor,
+                       long timeout,
+                       TimeUnit unit) {
+    super(messageType);
+    if (pipelines.isEmpty()) {
+      throw new IllegalArgumentException("pipelines is empty");
+    }
+    if (timeout <= 0) {
+      throw new IllegalArgumentException("illegal timeout :" + timeout);
+    }
+    this.pipelines = Collections.unmodifiableList(new ArrayList<>(pipelines));
+    this.executor = executor != null ? executor : ForkJoinPool.commonPool();
+    this.timeoutNanos = unit.toNanos(timeout);
+  }
+
+  public List<Pipeline> getPipelines() {
+    return pipelines;
+  }
+
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  @Override
+  protected void process0(HandlerContext ctx, I msg) {
+    final long deadline = System.nanoTime() + timeoutNanos;
+    final int size = pipelines.size();
+    final CompletableFuture<?>[] futures = new CompletableFuture<?>[size - 1];
+    for (int i = 1; i < size; i++) {
+      final Pipeline pipeline = pipelines.get(i);
+      futures[i - 1] = CompletableFuture.runAsync(() -> pipeline.fireNext(msg), executor);
+    }
+    pipelines.get(0).fireNext(msg);
+    if (futures.length > 0) {
+      try {
+        CompletableFuture.allOf(futures).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+      } catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IllegalStateException(cause);
+      } catch (TimeoutException e) {
+        throw new IllegalStateException("fan-out timeout: " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms", e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+    joined(ctx, msg);
+  }
+
+  /**
+   * 全部子 Pipeline 处理完成，默认往后传递消息
+   *
+   * @param ctx 上下文
+   * @param msg 消息
+   */
+  protected void joined(HandlerContext ctx, I msg) {
+    ctx.fireNext(msg);
+  }
+}
@@ -1,5 +1,7 @@
 package com.benefitj.pipeline;
 
+import java.util.Collection;
+
 /**
  * Pipeline上下文
  */
@@ -48,4 +50,26 @@ public interface HandlerContext {
    * @param msg 消息
    */
   void fireNext(Object msg);
+
+  /**
+   * 往上一个处理器批量传递消息
+   *
+   * @param msgs 消息
+   */
+  default void firePrevBatch(Collection<?> msgs) {
+    for (Object msg : msgs) {
+      firePrev(msg);
+    }
+  }
+
+  /**
+   * 往下一个处理器批量传递消息
+   *
+   * @param msgs 消息
+   */
+  default void fireNextBatch(Collection<?> msgs) {
+    for (Object msg : msgs) {
+      fireNext(msg);
+    }
+  }
 }
@@ -0,0 +1,274 @@
+package com.benefitj.pipeline;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * PipelineHandler 的调用统计：调用次数、异常次数和耗时分布
+ * <p>
+ * 耗时按对数分段、段内线性细分的桶记录(与 HdrHistogram 相同的思路，相对误差不超过 1/16)，
+ * 按线程ID分散写入固定数量的桶(与 CPU 数量相当)，减少竞争，桶的数量不随线程的创建和销毁增长；耗时只统计 PipelineHandler 自身，不包含传递给其他 PipelineHandler 后的处理时间
+ */
+public class HandlerMetrics {
+
+  /**
+   * 每段细分的桶数量: 2^SUB_BITS
+   */
+  static final int SUB_BITS = 4;
+  static final int SUB_COUNT = 1 << SUB_BITS;
+  /**
+   * 可记录的最大耗时(纳秒)的位数，超出的记为最大值
+   */
+  static final int MAX_BITS = 36;
+  static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+  static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+  private static final int COUNT = BUCKET_COUNT;
+  private static final int ERRORS = BUCKET_COUNT + 1;
+  private static final int TOTAL = BUCKET_COUNT + 2;
+  private static final int MAX = BUCKET_COUNT + 3;
+
+  /**
+   * 线程当前的调用层级，用于扣除嵌套调用的耗时
+   */
+  private static final ThreadLocal<Timer> TIMER = ThreadLocal.withInitial(Timer::new);
+
+  private final String name;
+  /**
+   * 全部线程共享的桶，首次使用时创建
+   */
+  private volatile AtomicLongArray[] recorders;
+
+  public HandlerMetrics(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * 开始调用
+   *
+   * @return 返回开始的时间
+   */
+  long start() {
+    TIMER.get().enter();
+    return System.nanoTime();
+  }
+
+  /**
+   * 结束调用
+   *
+   * @param start   开始的时间
+   * @param success 是否成功
+   */
+  void stop(long start, boolean success) {
+    final long elapsed = System.nanoTime() - start;
+    final long self = TIMER.get().exit(elapsed);
+    AtomicLongArray[] shared = this.recorders;
+    if (shared == null) {
+      shared = initRecorders();
+    }
+    final long id = Thread.currentThread().getId();
+    final AtomicLongArray r = shared[(int) (id ^ (id >>> 16)) & (shared.length - 1)];
+    r.getAndIncrement(bucketIndex(self));
+    r.getAndIncrement(COUNT);
+    if (!success) {
+      r.getAndIncrement(ERRORS);
+    }
+    r.getAndAdd(TOTAL, self);
+    if (self > r.get(MAX)) {
+      r.accumulateAndGet(MAX, self, Math::max);
+    }
+  }
+
+  private synchronized AtomicLongArray[] initRecorders() {
+    AtomicLongArray[] shared = this.recorders;
+    if (shared == null) {
+      int size = 1;
+      while (size < Runtime.getRuntime().availableProcessors()) {
+        size <<= 1;
+      }
+      shared = new AtomicLongArray[size];
+      for (int i = 0; i < size; i++) {
+        shared[i] = new AtomicLongArray(BUCKET_COUNT + 4);
+      }
+      this.recorders = shared;
+    }
+    return shared;
+  }
+
+  /**
+   * @return 返回当前的统计快照
+   */
+  public Snapshot snapshot() {
+    final long[] buckets = new long[BUCKET_COUNT];
+    long count = 0, errors = 0, total = 0, max = 0;
+    final AtomicLongArray[] shared = this.recorders;
+    if (shared == null) {
+      return new Snapshot(name, 0, 0, 0, 0, buckets);
+    }
+    for (AtomicLongArray r : shared) {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        buckets[i] += r.get(i);
+      }
+      count += r.get(COUNT);
+      errors += r.get(ERRORS);
+      total += r.get(TOTAL);
+      max = Math.max(max, r.get(MAX));
+    }
+    return new Snapshot(name, count, errors, total, max, buckets);
+  }
+
+  static int bucketIndex(long value) {
+    final long v = value < 0 ? 0 : Math.min(value, MAX_VALUE);
+    if (v < SUB_COUNT) {
+      return (int) v;
+    }
+    final int exp = 63 - Long.numberOfLeadingZeros(v);
+    final int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+    return ((exp - SUB_BITS + 1) << SUB_BITS) + sub;
+  }
+
+  /**
+   * @return 返回桶内的最大值
+   */
+  static long bucketUpperValue(int index) {
+    if (index < SUB_COUNT) {
+      return index;
+    }
+    final int shift = (index >>> SUB_BITS) - 1;
+    final long lower = ((long) (SUB_COUNT + (index & (SUB_COUNT - 1)))) << shift;
+    return lower + (1L << shift) - 1;
+  }
+
+  /**
+   * 线程的调用层级，记录每一层的嵌套调用的耗时
+   */
+  static final class Timer {
+
+    private long[] children = new long[16];
+    private int depth;
+
+    void enter() {
+      if (++depth >= children.length) {
+        final long[] copy = new long[children.length << 1];
+        System.arraycopy(children, 0, copy, 0, children.length);
+        children = copy;
+      }
+      children[depth] = 0;
+    }
+
+    /**
+     * @return 返回扣除嵌套调用后的耗时
+     */
+    long exit(long elapsed) {
+      final long self = elapsed - children[depth];
+      if (--depth > 0) {
+        children[depth] += elapsed;
+      }
+      return Math.max(self, 0);
+    }
+  }
+
+  /**
+   * 统计快照
+   */
+  public static final class Snapshot {
+
+    private final String name;
+    private final long count;
+    private final long errors;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long[] buckets;
+
+    Snapshot(String name, long count, long errors, long totalNanos, long maxNanos, long[] buckets) {
+      this.name = name;
+      this.count = count;
+      this.errors = errors;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+      this.buckets = buckets;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return 调用次数
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * @return 异常次数
+     */
+    public long getErrors() {
+      return errors;
+    }
+
+    /**
+     * @return 总耗时(纳秒)
+     */
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    /**
+     * @return 最大耗时(纳秒)
+     */
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    /**
+     * @return 平均耗时(纳秒)
+     */
+    public double getMeanNanos() {
+      return count > 0 ? (double) totalNanos / count : 0;
+    }
+
+    /**
+     * 获取百分位的耗时
+     *
+     * @param percentile 百分位，取值 [0, 100]
+     * @return 返回耗时(纳秒)，不超过最大耗时
+     */
+    public long getPercentileNanos(double percentile) {
+      if (percentile < 0 || percentile > 100) {
+        throw new IllegalArgumentException("illegal percentile :" + percentile);
+      }
+      long recorded = 0;
+      for (long bucket : buckets) {
+        recorded += bucket;
+      }
+      if (recorded == 0) {
+        return 0;
+      }
+      final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+      long cumulative = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        cumulative += buckets[i];
+        if (cumulative >= rank) {
+          return Math.min(bucketUpperValue(i), maxNanos);
+        }
+      }
+      return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+      return name + "{count=" + count
+          + ", errors=" + errors
+          + ", mean=" + (long) getMeanNanos()
+          + "ns, p50=" + getPercentileNanos(50)
+          + "ns, p99=" + getPercentileNanos(99)
+          + "ns, p999=" + getPercentileNanos(99.9)
+          + "ns, max=" + maxNanos
+          + "ns}";
+    }
+  }
+}
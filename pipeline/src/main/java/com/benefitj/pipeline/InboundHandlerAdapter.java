@@ -1,8 +1,7 @@
 package com.benefitj.pipeline;
 
-import java.util.Map;
-import java.util.WeakHashMap;
-import java.util.function.Function;
+import javax.annotation.Nonnull;
+import java.util.Collection;
 
 /**
  * PipelineHandler instance
@@ -11,9 +10,10 @@ import java.util.function.Function;
  */
 public abstract class InboundHandlerAdapter<I> extends UnboundHandlerAdapter<I> implements PipelineHandler {
 
-  private static final Function<HandlerContext, InboundHandlerContext> CTX_FUNC = InboundHandlerContext::new;
-
-  private final Map<HandlerContext, InboundHandlerContext> ihCtxCache = new WeakHashMap<>();
+  /**
+   * HandlerContext 对应的 InboundHandlerContext，添加到 Pipeline 时创建
+   */
+  private static final AttachmentKey<InboundHandlerContext> IH_CTX = AttachmentKey.newKey("inboundCtx");
 
   public InboundHandlerAdapter() {
     super();
@@ -23,6 +23,21 @@ public abstract class InboundHandlerAdapter<I> extends UnboundHandlerAdapter<I>
     super(inboundMessageType);
   }
 
+  @Override
+  public void handlerAdded(@Nonnull HandlerContext ctx) {
+    if (ctx instanceof AbstractHandlerContext) {
+      ((AbstractHandlerContext) ctx).attachIfAbsent(IH_CTX, InboundHandlerContext::new);
+    }
+  }
+
+  /**
+   * 往前传递的消息不处理
+   */
+  @Override
+  public final boolean acceptPrev(Class<?> msgType) {
+    return false;
+  }
+
   @Override
   protected final void processPrev0(HandlerContext ctx, I msg) {
     ctx.firePrev(msg);
@@ -30,11 +45,23 @@ public abstract class InboundHandlerAdapter<I> extends UnboundHandlerAdapter<I>
 
   @Override
   protected final void processNext0(HandlerContext ctx, I msg) {
+    process0(inboundCtx(ctx), msg);
+  }
+
+  /**
+   * 获取只允许往后传递消息的上下文
+   *
+   * @param ctx 上下文
+   * @return 返回 InboundHandlerContext
+   */
+  protected final HandlerContext inboundCtx(HandlerContext ctx) {
     if (ctx instanceof InboundHandlerContext) {
-      process0(ctx, msg);
-    } else {
-      process0(ihCtxCache.computeIfAbsent(ctx, CTX_FUNC), msg);
+      return ctx;
+    }
+    if (ctx instanceof AbstractHandlerContext) {
+      return ((AbstractHandlerContext) ctx).attachIfAbsent(IH_CTX, InboundHandlerContext::new);
     }
+    return new InboundHandlerContext(ctx);
   }
 
   /**
@@ -89,6 +116,16 @@ public abstract class InboundHandlerAdapter<I> extends UnboundHandlerAdapter<I>
       getCtx().fireNext(msg);
     }
 
+    @Override
+    public void firePrevBatch(Collection<?> msgs) {
+      throw new UnsupportedOperationException("消息仅允许往后传递!");
+    }
+
+    @Override
+    public void fireNextBatch(Collection<?> msgs) {
+      getCtx().fireNextBatch(msgs);
+    }
+
     @Override
     public boolean equals(Object obj) {
       return (obj == this || getCtx().equals(obj));
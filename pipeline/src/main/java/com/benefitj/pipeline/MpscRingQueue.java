@@ -0,0 +1,101 @@
+package com.benefitj.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 有界的多生产者、单消费者环形队列
+ * <p>
+ * 每个槽位保存一个序号：生产者通过 CAS 占用位置，写入元素后发布序号；消费者只有一个，读取序号判断元素是否可用
+ *
+ * @param <E>
+ */
+final class MpscRingQueue<E> {
+
+  private final Object[] buffer;
+  private final AtomicLongArray sequences;
+  private final int mask;
+  /**
+   * 生产者的位置
+   */
+  private final AtomicLong tail = new AtomicLong();
+  /**
+   * 消费者的位置
+   */
+  private volatile long head;
+
+  /**
+   * @param capacity 容量，会向上取整为2的幂
+   */
+  MpscRingQueue(int capacity) {
+    if (capacity <= 0 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("illegal capacity :" + capacity);
+    }
+    final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.buffer = new Object[size];
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+    this.mask = size - 1;
+  }
+
+  /**
+   * 添加元素（多线程调用）
+   *
+   * @param e 元素
+   * @return 队列已满返回 false
+   */
+  boolean offer(E e) {
+    long t;
+    int index;
+    for (; ; ) {
+      t = tail.get();
+      index = (int) t & mask;
+      final long dif = sequences.get(index) - t;
+      if (dif == 0) {
+        if (tail.compareAndSet(t, t + 1)) {
+          break;
+        }
+      } else if (dif < 0) {
+        // 消费者还未取走该位置的元素
+        return false;
+      }
+    }
+    buffer[index] = e;
+    sequences.lazySet(index, t + 1);
+    return true;
+  }
+
+  /**
+   * 取出元素（只允许一个消费者调用）
+   *
+   * @return 队列为空返回 null
+   */
+  @SuppressWarnings("unchecked")
+  E poll() {
+    final long h = head;
+    final int index = (int) h & mask;
+    if (sequences.get(index) != h + 1) {
+      return null;
+    }
+    final E e = (E) buffer[index];
+    buffer[index] = null;
+    sequences.lazySet(index, h + buffer.length);
+    head = h + 1;
+    return e;
+  }
+
+  boolean isEmpty() {
+    return size() == 0;
+  }
+
+  int size() {
+    return (int) Math.max(0, tail.get() - head);
+  }
+
+  int capacity() {
+    return buffer.length;
+  }
+
+}
@@ -1,8 +1,7 @@
 package com.benefitj.pipeline;
 
-import java.util.Map;
-import java.util.WeakHashMap;
-import java.util.function.Function;
+import javax.annotation.Nonnull;
+import java.util.Collection;
 
 /**
  * PipelineHandler instance
@@ -11,9 +10,10 @@ import java.util.function.Function;
  */
 public abstract class OutboundHandlerAdapter<I> extends UnboundHandlerAdapter<I> implements PipelineHandler {
 
-  private static final Function<HandlerContext, OutboundHandlerContext> CTX_FUNC = OutboundHandlerContext::new;
-
-  private final Map<HandlerContext, OutboundHandlerContext> ohCtxCache = new WeakHashMap<>();
+  /**
+   * HandlerContext 对应的 OutboundHandlerContext，添加到 Pipeline 时创建
+   */
+  private static final AttachmentKey<OutboundHandlerContext> OH_CTX = AttachmentKey.newKey("outboundCtx");
 
   public OutboundHandlerAdapter() {
   }
@@ -22,13 +22,40 @@ public abstract class OutboundHandlerAdapter<I> extends UnboundHandlerAdapter<I>
     super(inboundMessageType);
   }
 
+  @Override
+  public void handlerAdded(@Nonnull HandlerContext ctx) {
+    if (ctx instanceof AbstractHandlerContext) {
+      ((AbstractHandlerContext) ctx).attachIfAbsent(OH_CTX, OutboundHandlerContext::new);
+    }
+  }
+
   @Override
   protected final void processPrev0(HandlerContext ctx, I msg) {
+    process0(outboundCtx(ctx), msg);
+  }
+
+  /**
+   * 获取只允许往前传递消息的上下文
+   *
+   * @param ctx 上下文
+   * @return 返回 OutboundHandlerContext
+   */
+  protected final HandlerContext outboundCtx(HandlerContext ctx) {
     if (ctx instanceof OutboundHandlerContext) {
-      process0(ctx, msg);
-    } else {
-      process0(ohCtxCache.computeIfAbsent(ctx, CTX_FUNC), msg);
+      return ctx;
     }
+    if (ctx instanceof AbstractHandlerContext) {
+      return ((AbstractHandlerContext) ctx).attachIfAbsent(OH_CTX, OutboundHandlerContext::new);
+    }
+    return new OutboundHandlerContext(ctx);
+  }
+
+  /**
+   * 往后传递的消息不处理
+   */
+  @Override
+  public final boolean acceptNext(Class<?> msgType) {
+    return false;
   }
 
   @Override
@@ -88,6 +115,16 @@ public abstract class OutboundHandlerAdapter<I> extends UnboundHandlerAdapter<I>
       throw new UnsupportedOperationException("消息仅允许往前传递!");
     }
 
+    @Override
+    public void firePrevBatch(Collection<?> msgs) {
+      getCtx().firePrevBatch(msgs);
+    }
+
+    @Override
+    public void fireNextBatch(Collection<?> msgs) {
+      throw new UnsupportedOperationException("消息仅允许往前传递!");
+    }
+
     @Override
     public boolean equals(Object obj) {
       return (obj == this || getCtx().equals(obj));
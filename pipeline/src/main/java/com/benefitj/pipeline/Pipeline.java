@@ -1,9 +1,13 @@
 package com.benefitj.pipeline;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Pipeline接口
@@ -40,6 +44,42 @@ public interface Pipeline {
    */
   void firePrev(String baseName, Object msg);
 
+  /**
+   * 在执行器中从前往后传递消息，整个传递过程在执行器的一个线程中完成，
+   * 阻塞的 PipelineHandler 可以配合 {@link VirtualThreads#newPerMessageExecutor(int)} 使用
+   *
+   * @param msg      消息
+   * @param executor 执行器
+   * @return 返回传递完成的结果
+   */
+  default CompletableFuture<Void> fireNextAsync(Object msg, Executor executor) {
+    return CompletableFuture.runAsync(() -> fireNext(msg), executor);
+  }
+
+  /**
+   * 从前往后批量传递消息，支持批量处理的 PipelineHandler({@link BatchPipelineHandler}) 一次处理全部消息，
+   * 其他 PipelineHandler 逐条处理
+   *
+   * @param msgs 消息
+   */
+  default void fireNextBatch(Collection<?> msgs) {
+    for (Object msg : msgs) {
+      fireNext(msg);
+    }
+  }
+
+  /**
+   * 从后往前批量传递消息，支持批量处理的 PipelineHandler({@link BatchPipelineHandler}) 一次处理全部消息，
+   * 其他 PipelineHandler 逐条处理
+   *
+   * @param msgs 消息
+   */
+  default void firePrevBatch(Collection<?> msgs) {
+    for (Object msg : msgs) {
+      firePrev(msg);
+    }
+  }
+
   /**
    * @return 获取Pipeline中Handler的个数
    */
@@ -99,6 +139,33 @@ public interface Pipeline {
    */
   Pipeline addLast(String name, PipelineHandler handler);
 
+  /**
+   * 在Pipeline尾部添加一个 PipelineHandler，消息交给 StageExecutor 在其线程中处理
+   *
+   * @param handler 当前PipelineHandler
+   * @param stage   处理消息的执行器
+   * @return 返回Pipeline
+   */
+  default Pipeline addLast(PipelineHandler handler, StageExecutor stage) {
+    return addLast(null, handler, stage);
+  }
+
+  /**
+   * 在Pipeline尾部添加一个 PipelineHandler，消息交给 StageExecutor 在其线程中处理；
+   * 默认只支持 stage 为 null(在调用线程中处理)，其他实现需要重写
+   *
+   * @param name    当前PipelineHandler的名称
+   * @param handler 当前PipelineHandler
+   * @param stage   处理消息的执行器
+   * @return 返回Pipeline
+   */
+  default Pipeline addLast(String name, PipelineHandler handler, StageExecutor stage) {
+    if (stage == null) {
+      return addLast(name, handler);
+    }
+    throw new UnsupportedOperationException("不支持StageExecutor: " + getClass().getName());
+  }
+
   /**
    * 在Pipeline中插入一个 PipelineHandler
    *
@@ -241,4 +308,43 @@ public interface Pipeline {
    * 清空
    */
   void clear();
+
+  /**
+   * 开启或关闭 PipelineHandler 的调用统计（调用次数、异常次数和耗时分布），默认关闭；
+   * 默认不支持调用统计，开启时抛出 UnsupportedOperationException
+   *
+   * @param enabled 是否开启
+   */
+  default void setMetricsEnabled(boolean enabled) {
+    if (enabled) {
+      throw new UnsupportedOperationException("不支持调用统计: " + getClass().getName());
+    }
+  }
+
+  /**
+   * @return 是否开启了 PipelineHandler 的调用统计
+   */
+  default boolean isMetricsEnabled() {
+    return false;
+  }
+
+  /**
+   * 获取 PipelineHandler 的调用统计快照，未开启时返回空
+   *
+   * @return 返回 PipelineHandler 的名称 -> 统计快照，按 PipelineHandler 的顺序排列
+   */
+  default Map<String, HandlerMetrics.Snapshot> metrics() {
+    return Collections.emptyMap();
+  }
+
+  /**
+   * 按当前的 PipelineHandler 编译出固定的 Pipeline，消息按数组下标在 PipelineHandler 之间传递，
+   * 编译后的 Pipeline 不允许增删 PipelineHandler，也不允许开启或关闭调用统计，适用于 PipelineHandler 固定不变的场景；
+   * 默认不编译，返回当前的 Pipeline
+   *
+   * @return 返回编译后的 Pipeline
+   */
+  default Pipeline compile() {
+    return this;
+  }
 }
@@ -22,4 +22,13 @@ public interface PipelineHandler {
    * @param msg 消息
    */
   void processNext(@Nonnull HandlerContext ctx, Object msg);
+
+  /**
+   * 添加到 Pipeline 后调用，每个 HandlerContext 调用一次，可以在此创建与 HandlerContext 绑定的对象
+   *
+   * @param ctx 上下文
+   */
+  default void handlerAdded(@Nonnull HandlerContext ctx) {
+    // ~
+  }
 }
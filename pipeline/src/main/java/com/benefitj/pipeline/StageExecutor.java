@@ -0,0 +1,258 @@
+package com.benefitj.pipeline;
+
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 处理阶段的执行器
+ * <p>
+ * 绑定了 StageExecutor 的 PipelineHandler 不在调用线程中处理消息，消息先放入有界的多生产者、单消费者队列，
+ * 再由 Executor 中的线程按顺序取出处理，同一时刻最多只有一个线程在处理队列中的消息；
+ * 队列已满时按 {@link BackpressurePolicy} 处理。多个 PipelineHandler 可以共用一个 StageExecutor
+ * <p>
+ * 队列已满时，{@link BackpressurePolicy#BLOCK} 阻塞调用线程；只有调用线程正在处理当前 StageExecutor 的队列，
+ * 或者正在处理的 StageExecutor 与当前 StageExecutor 共用同一个 Executor 时(阻塞会导致死锁)，才改为在调用线程中直接处理
+ * <p>
+ * 注意：{@link BackpressurePolicy#CALLER_RUNS} 以及 BLOCK 改为直接处理的消息在调用线程中处理，
+ * 此时 Executor 中的线程可能正在处理队列中更早的消息，PipelineHandler 会被并发调用，消息也不再按提交的顺序处理；
+ * 需要严格顺序和单线程处理时，使用 BLOCK，前后相连的 StageExecutor 使用不同的 Executor
+ * <p>
+ * Executor 拒绝处理任务时(如已关闭)，在提交消息的线程中处理队列中的消息
+ * <p>
+ * 通过 {@link #perMessage(Executor)} 创建的 StageExecutor 不使用队列，每条消息单独提交给 Executor 并发处理，不保证顺序，
+ * 适用于阻塞的 PipelineHandler，配合 {@link VirtualThreads#newPerMessageExecutor(int)} 使用
+ */
+public class StageExecutor {
+
+  static final int NEXT = 0;
+  static final int PREV = 1;
+  static final int NEXT_BATCH = 2;
+  static final int PREV_BATCH = 3;
+
+  /**
+   * 每次调度最多处理的消息数量，避免长时间占用 Executor 的线程
+   */
+  private static final int DRAIN_LIMIT = 1024;
+  /**
+   * 队列已满时阻塞的间隔
+   */
+  private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+  /**
+   * 当前线程正在处理的 StageExecutor，不在处理队列时为 null
+   */
+  private static final ThreadLocal<StageExecutor> DRAINING = new ThreadLocal<>();
+
+  private final Executor executor;
+  /**
+   * 等待处理的消息，每条消息单独提交时为 null
+   */
+  private final MpscRingQueue<Envelope> queue;
+  private final BackpressurePolicy policy;
+  /**
+   * 是否已提交处理任务
+   */
+  private final AtomicBoolean scheduled = new AtomicBoolean(false);
+  /**
+   * 丢弃的消息数量
+   */
+  private final LongAdder dropped = new LongAdder();
+
+  /**
+   * @param executor 执行器
+   * @param capacity 队列容量，会向上取整为2的幂
+   * @param policy   队列已满时的处理策略
+   */
+  public StageExecutor(Executor executor, int capacity, BackpressurePolicy policy) {
+    if (executor == null) {
+      throw new IllegalArgumentException("executor is null");
+    }
+    if (policy == null) {
+      throw new IllegalArgumentException("policy is null");
+    }
+    this.executor = executor;
+    this.queue = new MpscRingQueue<>(capacity);
+    this.policy = policy;
+  }
+
+  private StageExecutor(Executor executor) {
+    if (executor == null) {
+      throw new IllegalArgumentException("executor is null");
+    }
+    this.executor = executor;
+    this.queue = null;
+    this.policy = BackpressurePolicy.CALLER_RUNS;
+  }
+
+  /**
+   * 创建每条消息单独提交给 Executor 的 StageExecutor，消息并发处理，不保证顺序；
+   * Executor 拒绝执行时在调用线程中处理
+   *
+   * @param executor 执行器
+   * @return 返回 StageExecutor
+   */
+  public static StageExecutor perMessage(Executor executor) {
+    return new StageExecutor(executor);
+  }
+
+  /**
+   * @return 是否每条消息单独提交给 Executor
+   */
+  public boolean isPerMessage() {
+    return queue == null;
+  }
+
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  public BackpressurePolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * @return 队列容量，每条消息单独提交时为 0
+   */
+  public int getCapacity() {
+    return queue != null ? queue.capacity() : 0;
+  }
+
+  /**
+   * @return 队列中等待处理的消息数量
+   */
+  public int getPending() {
+    return queue != null ? queue.size() : 0;
+  }
+
+  /**
+   * @return 丢弃的消息数量
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /**
+   * 提交消息
+   *
+   * @param ctx  上下文
+   * @param msg  消息
+   * @param type 传递方向
+   */
+  void submit(AbstractHandlerContext ctx, Object msg, int type) {
+    final Envelope envelope = new Envelope(ctx, msg, type);
+    if (queue == null) {
+      try {
+        executor.execute(envelope);
+      } catch (RejectedExecutionException e) {
+        envelope.run();
+      }
+      return;
+    }
+    if (!queue.offer(envelope)) {
+      switch (policy) {
+        case DROP:
+          dropped.increment();
+          return;
+        case CALLER_RUNS:
+          envelope.run();
+          return;
+        case BLOCK:
+        default:
+          final StageExecutor draining = DRAINING.get();
+          if (draining == this || (draining != null && draining.executor == executor)) {
+            // 在处理当前队列的线程中继续提交，或共用同一个 Executor 时(当前的处理任务之后的任务可能永远不会执行)，
+            // 阻塞会导致死锁，直接处理
+            envelope.run();
+            return;
+          }
+          do {
+            schedule();
+            LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+          } while (!queue.offer(envelope));
+          break;
+      }
+    }
+    schedule();
+  }
+
+  private void schedule() {
+    if (scheduled.compareAndSet(false, true)) {
+      try {
+        executor.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        // 消息已放入队列，Executor 拒绝(如已关闭)时在当前线程中处理，
+        // 当前线程持有调度标记，不会与其他线程同时处理，仍按顺序处理
+        drain();
+      }
+    }
+  }
+
+  private void drain() {
+    final Thread current = Thread.currentThread();
+    final StageExecutor previous = DRAINING.get();
+    DRAINING.set(this);
+    try {
+      for (int i = 0; i < DRAIN_LIMIT; i++) {
+        final Envelope envelope = queue.poll();
+        if (envelope == null) {
+          break;
+        }
+        try {
+          envelope.run();
+        } catch (Throwable e) {
+          current.getUncaughtExceptionHandler().uncaughtException(current, e);
+        }
+      }
+    } finally {
+      if (previous != null) {
+        DRAINING.set(previous);
+      } else {
+        DRAINING.remove();
+      }
+      scheduled.set(false);
+      if (!queue.isEmpty()) {
+        schedule();
+      }
+    }
+  }
+
+  /**
+   * 队列中的消息
+   */
+  static final class Envelope implements Runnable {
+
+    final AbstractHandlerContext ctx;
+    final Object msg;
+    final int type;
+
+    Envelope(AbstractHandlerContext ctx, Object msg, int type) {
+      this.ctx = ctx;
+      this.msg = msg;
+      this.type = type;
+    }
+
+    @Override
+    public void run() {
+      switch (type) {
+        case NEXT:
+          ctx.invokeNext(msg);
+          break;
+        case PREV:
+          ctx.invokePrev(msg);
+          break;
+        case NEXT_BATCH:
+          ctx.invokeNextBatch((Collection<?>) msg);
+          break;
+        case PREV_BATCH:
+          ctx.invokePrevBatch((Collection<?>) msg);
+          break;
+        default:
+          throw new IllegalStateException("unknown type: " + type);
+      }
+    }
+  }
+}
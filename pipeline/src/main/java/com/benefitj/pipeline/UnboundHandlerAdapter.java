@@ -9,7 +9,25 @@ import javax.annotation.Nonnull;
  */
 public abstract class UnboundHandlerAdapter<I> implements PipelineHandler {
 
+  /**
+   * 类型 -> 是否重写了 {@link #support(Object)}
+   */
+  private static final ClassValue<Boolean> SUPPORT_OVERRIDDEN = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      try {
+        return type.getMethod("support", Object.class).getDeclaringClass() != UnboundHandlerAdapter.class;
+      } catch (NoSuchMethodException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  };
+
   private final TypeParameterMatcher matcher;
+  /**
+   * 是否可以按消息类型跳过：重写了 {@link #support(Object)} 时，是否处理消息不再只由类型决定，不能跳过
+   */
+  private final boolean typeSkippable = !SUPPORT_OVERRIDDEN.get(getClass());
 
   public UnboundHandlerAdapter() {
     matcher = TypeParameterMatcher.find(this, UnboundHandlerAdapter.class, "I");
@@ -19,10 +37,44 @@ public abstract class UnboundHandlerAdapter<I> implements PipelineHandler {
     this.matcher = TypeParameterMatcher.get(inboundMessageType);
   }
 
+  /**
+   * 是否处理消息；子类重写此方法后，Pipeline 不会再按消息类型跳过当前的 PipelineHandler，
+   * 只需按类型过滤时应重写 {@link #acceptNext(Class)}/{@link #acceptPrev(Class)}
+   *
+   * @param msg 消息
+   * @return 返回是否处理
+   */
   public boolean support(Object msg) {
     return matcher.match(msg);
   }
 
+  /**
+   * 是否处理往后传递的该类型的消息，不处理的消息会直接传给下一个 PipelineHandler，Pipeline 据此跳过当前的 PipelineHandler
+   *
+   * @param msgType 消息的类型
+   * @return 返回是否处理
+   */
+  public boolean acceptNext(Class<?> msgType) {
+    return !typeSkippable || matcher.matchType(msgType);
+  }
+
+  /**
+   * 是否处理往前传递的该类型的消息，不处理的消息会直接传给上一个 PipelineHandler，Pipeline 据此跳过当前的 PipelineHandler
+   *
+   * @param msgType 消息的类型
+   * @return 返回是否处理
+   */
+  public boolean acceptPrev(Class<?> msgType) {
+    return !typeSkippable || matcher.matchType(msgType);
+  }
+
+  /**
+   * @return 是否可以按消息类型跳过，重写了 {@link #support(Object)} 时返回 false
+   */
+  final boolean isTypeSkippable() {
+    return typeSkippable;
+  }
+
   @Override
   public final void processPrev(@Nonnull HandlerContext ctx, Object msg) {
     if (support(msg)) {
@@ -0,0 +1,104 @@
+package com.benefitj.pipeline;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 虚拟线程的支持
+ * <p>
+ * 运行在 JDK 21 及以上时使用虚拟线程(每条消息一个线程)，否则使用线程数量有限的线程池；
+ * 类加载时通过 MethodHandle 查找一次，调用时不使用反射
+ */
+public final class VirtualThreads {
+
+  /**
+   * Executors.newVirtualThreadPerTaskExecutor()
+   */
+  private static final MethodHandle NEW_PER_TASK_EXECUTOR;
+
+  static {
+    MethodHandle newPerTaskExecutor;
+    try {
+      newPerTaskExecutor = MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+          MethodType.methodType(ExecutorService.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      newPerTaskExecutor = null;
+    }
+    NEW_PER_TASK_EXECUTOR = newPerTaskExecutor;
+  }
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * @return 是否支持虚拟线程
+   */
+  public static boolean isSupported() {
+    return NEW_PER_TASK_EXECUTOR != null;
+  }
+
+  /**
+   * 创建每条消息一个线程的执行器，适用于阻塞的 PipelineHandler(如 JDBC、HTTP 调用)
+   * <p>
+   * 支持虚拟线程时，每个任务在新的虚拟线程中执行，不限制数量；
+   * 否则使用最多 fallbackThreads 个线程的线程池，队列已满时在调用线程中执行
+   *
+   * @param fallbackThreads 不支持虚拟线程时的最大线程数
+   * @return 返回执行器
+   */
+  public static ExecutorService newPerMessageExecutor(int fallbackThreads) {
+    if (fallbackThreads <= 0) {
+      throw new IllegalArgumentException("illegal fallbackThreads :" + fallbackThreads);
+    }
+    final MethodHandle mh = NEW_PER_TASK_EXECUTOR;
+    if (mh != null) {
+      try {
+        return (ExecutorService) mh.invokeExact();
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return newBoundedExecutor(fallbackThreads);
+  }
+
+  /**
+   * 创建线程数量有限的线程池，空闲的线程会被回收
+   *
+   * @param threads 最大线程数
+   * @return 返回执行器
+   */
+  static ExecutorService newBoundedExecutor(int threads) {
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+        60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(threads * 16),
+        new BlockingThreadFactory(),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static final class BlockingThreadFactory implements ThreadFactory {
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger(1);
+
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+    private final String prefix = "pipeline-blocking-" + POOL_NUMBER.getAndIncrement() + "-thread-";
+
+    @Override
+    public Thread newThread(Runnable r) {
+      final Thread t = new Thread(r, prefix + threadNumber.getAndIncrement());
+      t.setDaemon(true);
+      return t;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package com.benefitj.pipeline;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultPipelineTest {
+
+  /**
+   * 多个线程同时传递消息，每个 PipelineHandler 都处理了全部消息
+   */
+  @Test
+  public void testConcurrentFireNext() throws Exception {
+    final int threads = 8;
+    final int perThread = 2000;
+    final int handlerCount = 10;
+    final CountingHandler[] handlers = new CountingHandler[handlerCount];
+    final Pipeline pipeline = new DefaultPipeline();
+    for (int i = 0; i < handlerCount; i++) {
+      handlers[i] = new CountingHandler();
+      pipeline.addLast("h" + i, handlers[i]);
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final CountDownLatch start = new CountDownLatch(1);
+    try {
+      for (int t = 0; t < threads; t++) {
+        executor.execute(() -> {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+          for (int i = 0; i < perThread; i++) {
+            pipeline.fireNext(i);
+          }
+        });
+      }
+      start.countDown();
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (int i = 0; i < handlerCount; i++) {
+      assertEquals("h" + i, threads * perThread, handlers[i].count.get());
+    }
+  }
+
+  /**
+   * 传递消息的同时移除 PipelineHandler，移除后的消息不会再传给被移除的 PipelineHandler
+   */
+  @Test
+  public void testRemoveDuringFireNext() throws Exception {
+    final Pipeline pipeline = new DefaultPipeline();
+    final CountingHandler removed = new CountingHandler();
+    final CountingHandler last = new CountingHandler();
+    pipeline.addLast("first", new CountingHandler());
+    // 不处理 Integer，往后传递时会被跳过，first 按消息类型缓存实际处理的 HandlerContext
+    pipeline.addLast("string", new InboundHandlerAdapter<String>() {
+      @Override
+      protected void process0(HandlerContext ctx, String msg) {
+        ctx.fireNext(msg);
+      }
+    });
+    pipeline.addLast("removed", removed);
+    pipeline.addLast("last", last);
+
+    final int threads = 4;
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final AtomicInteger fired = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (int t = 0; t < threads; t++) {
+        executor.execute(() -> {
+          while (running.get()) {
+            pipeline.fireNext(fired.incrementAndGet());
+          }
+        });
+      }
+      Thread.sleep(100);
+      pipeline.remove("removed");
+      Thread.sleep(50);
+      running.set(false);
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    final int removedCount = removed.count.get();
+    for (int i = 0; i < 1000; i++) {
+      pipeline.fireNext(i);
+    }
+    assertEquals(removedCount, removed.count.get());
+    assertEquals(fired.get() + 1000, last.count.get());
+  }
+
+  static class CountingHandler extends InboundHandlerAdapter<Integer> {
+
+    final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    protected void process0(HandlerContext ctx, Integer msg) {
+      count.incrementAndGet();
+      // 短暂停顿，增加多个线程同时处于同一个 PipelineHandler 中的机会
+      LockSupport.parkNanos(1000);
+      ctx.fireNext(msg);
+    }
+  }
+}